@@ -0,0 +1,51 @@
+package com.csa.simulator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+/**
+ * AllocationCheck - Runs RunBenchmark under the JMH GC profiler and exits non-zero
+ * if the steady-state execute loop allocates. Wired into "mvn -Palloc-check verify".
+ */
+public class AllocationCheck {
+    /** Allowed bytes per instruction, anything above this is a regression **/
+    static final double LIMIT = 0.01;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(RunBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .build();
+        Collection<RunResult> results = new Runner(opts).run();
+        boolean failed = false;
+        for (RunResult r : results) {
+            Result<?> norm = r.getSecondaryResults().get("gc.alloc.rate.norm");
+            if (norm == null) {
+                System.err.println("GC profiler did not report gc.alloc.rate.norm");
+                failed = true;
+                continue;
+            }
+            // RunBenchmark reports per instruction, so the norm is bytes per instruction
+            double perInstruction = norm.getScore();
+            System.out.printf("%s: %.4f bytes/instruction%n", r.getParams().getBenchmark(), perInstruction);
+            if (perInstruction > LIMIT) {
+                System.err.printf("Allocation regression: %.4f bytes/instruction (limit %.2f)%n", perInstruction, LIMIT);
+                failed = true;
+            }
+        }
+        if (failed) System.exit(1);
+    }
+}
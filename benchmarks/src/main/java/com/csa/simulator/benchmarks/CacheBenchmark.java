@@ -0,0 +1,35 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Cache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheBenchmark - Cost of recording one access in the cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CacheBenchmark {
+    private Cache cache;
+    private short address;
+
+    @Setup
+    public void setup() {
+        cache = new Cache();
+        for (short i = 0; i < 16; i++) {
+            cache.push(i, i);
+        }
+    }
+
+    @Benchmark
+    public Cache push() {
+        address++;
+        cache.push(address, address);
+        return cache;
+    }
+}
@@ -0,0 +1,52 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Checkpoint;
+import com.csa.simulator.components.Machine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CheckpointBenchmark - Capture, restore and serialise a warm mid-program machine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CheckpointBenchmark {
+    private Machine machine;
+    private Checkpoint checkpoint;
+    private ByteArrayOutputStream bytes;
+
+    @Setup
+    public void setup() {
+        machine = new Machine();
+        Programs.loadLoop(machine);
+        machine.run(10_000);
+        checkpoint = Checkpoint.capture(machine);
+        bytes = new ByteArrayOutputStream(checkpoint.byteSize());
+    }
+
+    @Benchmark
+    public Checkpoint capture() {
+        return Checkpoint.capture(machine);
+    }
+
+    @Benchmark
+    public Machine restore() {
+        checkpoint.restore(machine);
+        return machine;
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        bytes.reset();
+        checkpoint.write(Channels.newChannel(bytes));
+        return bytes.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Converter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConverterBenchmark - The number conversion routines used by the GUI and loaders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ConverterBenchmark {
+    private final Converter conv = new Converter();
+    private final char[] bits = new char[16];
+    private short value = 0x1234;
+
+    @Setup
+    public void setup() {
+        conv.DecimalToBinary((short) 0x5A5A, bits, 16);
+    }
+
+    @Benchmark
+    public short binaryToDecimal() {
+        return conv.BinaryToDecimal(bits, 16);
+    }
+
+    @Benchmark
+    public char[] decimalToBinary() {
+        value++;
+        conv.DecimalToBinary(value, bits, 16);
+        return bits;
+    }
+
+    @Benchmark
+    public short hexToDecimal() {
+        return conv.HexToDecimal("0E0C");
+    }
+
+    @Benchmark
+    public String intToHexString() {
+        value++;
+        return conv.inttoHexString(value & 0xFFFF);
+    }
+}
@@ -0,0 +1,81 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.CPU;
+import com.csa.simulator.components.FloatingPointRegisters;
+import com.csa.simulator.components.Machine;
+import com.csa.simulator.components.Memory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.csa.simulator.benchmarks.Programs.shift;
+import static com.csa.simulator.benchmarks.Programs.word;
+
+/**
+ * ExecuteBenchmark - Cost of CPU.Execute for one instruction of each opcode family.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ExecuteBenchmark {
+
+    @Param({"LOAD_STORE", "ARITHMETIC", "MULTIPLY_DIVIDE", "LOGIC", "SHIFT_ROTATE", "JUMP", "FLOAT", "VECTOR", "IO"})
+    public String family;
+
+    private Machine machine;
+    private CPU cpu;
+    private Memory memory;
+    private short[] words;
+    private int next;
+
+    @Setup
+    public void setup() {
+        machine = new Machine();
+        cpu = machine.cpu;
+        memory = machine.memory;
+        memory.write(20, (short) 7);
+        memory.write(21, (short) 0x100);
+        memory.write(22, (short) 0x110);
+        memory.write(23, FloatingPointRegisters.floatToShort(1.5f));
+        memory.write(24, FloatingPointRegisters.floatToShort(4f));
+        cpu.R[2] = 3;
+        words = switch (family) {
+            case "LOAD_STORE" -> new short[]{word(0x01, 0, 0, 0, 20), word(0x02, 0, 0, 0, 25),
+                    word(0x03, 1, 0, 0, 20), word(0x21, 0, 1, 0, 20), word(0x22, 0, 1, 0, 26)};
+            case "ARITHMETIC" -> new short[]{word(0x04, 0, 0, 0, 20), word(0x05, 0, 0, 0, 20),
+                    word(0x06, 1, 0, 0, 9), word(0x07, 1, 0, 0, 9)};
+            case "MULTIPLY_DIVIDE" -> new short[]{word(0x10, 0, 2, 0, 0), word(0x11, 0, 2, 0, 0),
+                    word(0x12, 0, 2, 0, 0)};
+            case "LOGIC" -> new short[]{word(0x13, 0, 2, 0, 0), word(0x14, 1, 2, 0, 0),
+                    word(0x15, 3, 0, 0, 0)};
+            case "SHIFT_ROTATE" -> new short[]{shift(0x19, 0, 3, 1, 1), shift(0x19, 0, 3, 0, 0),
+                    shift(0x1A, 1, 5, 1, 1), shift(0x1A, 1, 5, 0, 1)};
+            case "JUMP" -> new short[]{word(0x08, 0, 0, 0, 30), word(0x09, 2, 0, 0, 30),
+                    word(0x0A, 3, 0, 0, 30), word(0x0B, 0, 0, 0, 30), word(0x0F, 2, 0, 0, 30)};
+            case "FLOAT" -> new short[]{word(0x28, 0, 0, 0, 23), word(0x1B, 0, 0, 0, 23),
+                    word(0x1C, 0, 0, 0, 23), word(0x29, 0, 0, 0, 27)};
+            case "VECTOR" -> new short[]{word(0x28, 0, 0, 0, 24), word(0x1D, 0, 0, 0, 21),
+                    word(0x1E, 0, 0, 0, 21)};
+            case "IO" -> new short[]{word(0x32, 0, 0, 0, 1), word(0x33, 1, 0, 0, 0),
+                    word(0x31, 1, 0, 0, 0)};
+            default -> throw new IllegalArgumentException(family);
+        };
+        // Each instruction gets its own word so the decode cache sees steady-state hits
+        for (int i = 0; i < words.length; i++) {
+            memory.write(Programs.START + i, words[i]);
+        }
+    }
+
+    @Benchmark
+    public short execute() {
+        int i = next;
+        next = i + 1 == words.length ? 0 : i + 1;
+        cpu.PC = (short) (Programs.START + i);
+        cpu.IR = words[i];
+        cpu.Execute(memory);
+        return cpu.R[0];
+    }
+}
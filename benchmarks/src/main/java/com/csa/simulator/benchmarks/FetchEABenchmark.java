@@ -0,0 +1,57 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.CPU;
+import com.csa.simulator.components.Machine;
+import com.csa.simulator.components.Memory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.csa.simulator.benchmarks.Programs.word;
+
+/**
+ * FetchEABenchmark - LDR through each addressing mode, so the difference
+ * between modes is the cost of effective address resolution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FetchEABenchmark {
+
+    @Param({"DIRECT", "INDEXED", "INDIRECT", "INDEXED_INDIRECT"})
+    public String mode;
+
+    private CPU cpu;
+    private Memory memory;
+    private short instruction;
+
+    @Setup
+    public void setup() {
+        Machine machine = new Machine();
+        cpu = machine.cpu;
+        memory = machine.memory;
+        cpu.X[1] = 0x100;
+        memory.write(20, (short) 0x120);
+        memory.write(0x114, (short) 0x120);
+        memory.write(0x120, (short) 42);
+        instruction = switch (mode) {
+            case "DIRECT" -> word(0x01, 0, 0, 0, 20);
+            case "INDEXED" -> word(0x01, 0, 1, 0, 20);
+            case "INDIRECT" -> word(0x01, 0, 0, 1, 20);
+            case "INDEXED_INDIRECT" -> word(0x01, 0, 1, 1, 20);
+            default -> throw new IllegalArgumentException(mode);
+        };
+        memory.write(Programs.START, instruction);
+    }
+
+    @Benchmark
+    public short load() {
+        cpu.PC = Programs.START;
+        cpu.IR = instruction;
+        cpu.Execute(memory);
+        return cpu.R[0];
+    }
+}
@@ -0,0 +1,32 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.FloatingPointRegisters;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FloatingPointBenchmark - Conversions between host floats and the 16 bit register format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FloatingPointBenchmark {
+    private float value = 1.25f;
+    private short bits = FloatingPointRegisters.floatToShort(3.5f);
+
+    @Benchmark
+    public short floatToShort() {
+        value += 0.5f;
+        return FloatingPointRegisters.floatToShort(value);
+    }
+
+    @Benchmark
+    public float shortToFloat() {
+        bits++;
+        return FloatingPointRegisters.shortToFloat(bits);
+    }
+}
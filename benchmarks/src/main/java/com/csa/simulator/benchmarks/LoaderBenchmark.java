@@ -0,0 +1,60 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Machine;
+import com.csa.simulator.components.ProgramLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoaderBenchmark - Loading an IPL file, the path GUI.ProcessFile delegates to,
+ * and the same program as a binary image.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class LoaderBenchmark {
+
+    @Param({"loading.txt", "Program1.txt"})
+    public String program;
+
+    private Machine machine;
+    private File file;
+    private File image;
+
+    @Setup
+    public void setup() throws IOException {
+        machine = new Machine();
+        Path copy = Files.createTempFile("ipl", ".txt");
+        copy.toFile().deleteOnExit();
+        try (var in = Machine.class.getResourceAsStream("/" + program)) {
+            if (in == null) throw new IOException("Missing resource " + program);
+            Files.write(copy, in.readAllBytes());
+        }
+        file = copy.toFile();
+        machine.load(file);
+        Path imageCopy = Files.createTempFile("ipl", ".img");
+        imageCopy.toFile().deleteOnExit();
+        ProgramLoader.writeImage(machine.memory, imageCopy);
+        image = imageCopy.toFile();
+    }
+
+    @Benchmark
+    public Machine load() throws IOException {
+        machine.load(file);
+        return machine;
+    }
+
+    @Benchmark
+    public Machine loadImage() throws IOException {
+        machine.load(image);
+        return machine;
+    }
+}
@@ -0,0 +1,44 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Machine;
+
+/**
+ * Programs Class - Instruction encoding and the small guest programs the benchmarks run.
+ */
+final class Programs {
+    /** Where the benchmark programs start **/
+    static final short START = 0x30;
+
+    private Programs() {
+    }
+
+    /**
+     * Encode a load/store style instruction: opcode | R | IX | I | address
+     */
+    static short word(int opcode, int r, int ix, int i, int address) {
+        return (short) (opcode << 10 | r << 8 | ix << 6 | i << 5 | address);
+    }
+
+    /**
+     * Encode a shift/rotate instruction: opcode | R | A/L | L/R | count
+     */
+    static short shift(int opcode, int r, int count, int lr, int al) {
+        return (short) (opcode << 10 | r << 8 | al << 7 | lr << 6 | count);
+    }
+
+    /**
+     * Load a tight loop that never halts: AIR, AMR, STR, SRC and a JMA back to the top.
+     * Used to measure steady-state execution.
+     */
+    static void loadLoop(Machine m) {
+        m.memory.write(20, (short) 3);
+        m.memory.write(22, START);
+        m.memory.write(START, word(0x21, 0, 1, 0, 22));         // LDX X1, 22
+        m.memory.write(START + 1, word(0x06, 0, 0, 0, 1));      // AIR R0, 1
+        m.memory.write(START + 2, word(0x04, 1, 0, 0, 20));     // AMR R1, 20
+        m.memory.write(START + 3, word(0x02, 0, 0, 0, 21));     // STR R0, 21
+        m.memory.write(START + 4, shift(0x19, 1, 1, 1, 1));     // SRC R1, 1, L, logical
+        m.memory.write(START + 5, word(0x0B, 0, 1, 0, 1));      // JMA X1, 1
+        m.cpu.setPC(START);
+    }
+}
@@ -0,0 +1,39 @@
+package com.csa.simulator.benchmarks;
+
+import com.csa.simulator.components.Machine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RunBenchmark - Steady-state Machine.run over a tight guest loop, interpreted and with
+ * the block translator. Run with -prof gc: gc.alloc.rate.norm should stay at 0 B/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RunBenchmark {
+    /** Instructions per benchmark operation **/
+    public static final int BATCH = 1000;
+
+    @Param({"false", "true"})
+    public boolean translate;
+
+    private Machine machine;
+
+    @Setup
+    public void setup() {
+        machine = new Machine();
+        machine.translator.enabled = translate;
+        Programs.loadLoop(machine);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long run() {
+        return machine.run(BATCH);
+    }
+}
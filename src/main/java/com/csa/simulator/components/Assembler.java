@@ -1,25 +1,366 @@
 package com.csa.simulator.components;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Assembler Class - Two-pass assembler for the full CPU instruction set.
+ *
+ * One statement per line, ';' starts a comment:
+ * <pre>
+ *         LOC 6            ; place the next word at address 6
+ *         Data 10          ; a constant word
+ *         Data End         ; the address of a label
+ * End:    HLT
+ *         LDR 3,0,10       ; r, x, address[, I]
+ *         LDX 2,7          ; x, address[, I]
+ *         AIR 1,5          ; r, immediate
+ *         MLT 0,2          ; rx, ry
+ *         SRC 1,3,1,1      ; r, count, L/R, A/L
+ *         IN 0,0           ; r, device
+ *         TRAP 2           ; trap code
+ * </pre>
+ * Numbers are decimal or 0x hex; address fields and Data also accept labels.
+ *
+ * Parsing and encoding is cached per line of text, so reassembling an edited source
+ * only parses the lines that changed; the second pass just patches label values in.
+ */
 public class Assembler extends Converter {
+    /** Operand layouts **/
+    private enum Format { NONE, MEM_R, MEM_FR, MEM_X, IMM_R, IMM, RR, R, SHIFT, IO, TRAP }
+
+    private record Op(int opcode, Format format) {}
+
+    private static final Map<String, Op> OPS = new HashMap<>();
+    private static final String[] MNEMONICS = new String[64];
+    static {
+        op("HLT", CPU.HLT, Format.NONE);
+        op("LDR", CPU.LDR, Format.MEM_R);
+        op("STR", CPU.STR, Format.MEM_R);
+        op("LDA", CPU.LDA, Format.MEM_R);
+        op("LDX", CPU.LDX, Format.MEM_X);
+        op("STX", CPU.STX, Format.MEM_X);
+        op("AMR", CPU.AMR, Format.MEM_R);
+        op("SMR", CPU.SMR, Format.MEM_R);
+        op("AIR", CPU.AIR, Format.IMM_R);
+        op("SIR", CPU.SIR, Format.IMM_R);
+        op("JZ", CPU.JZ, Format.MEM_R);
+        op("JNE", CPU.JNE, Format.MEM_R);
+        op("JCC", CPU.JCC, Format.MEM_R);
+        op("JMA", CPU.JMA, Format.MEM_X);
+        op("JSR", CPU.JSR, Format.MEM_X);
+        op("RFS", CPU.RFS, Format.IMM);
+        op("SOB", CPU.SOB, Format.MEM_R);
+        op("JGE", CPU.JGE, Format.MEM_R);
+        op("MLT", CPU.MLT, Format.RR);
+        op("DVD", CPU.DVD, Format.RR);
+        op("TRR", CPU.TRR, Format.RR);
+        op("AND", CPU.AND, Format.RR);
+        op("ORR", CPU.ORR, Format.RR);
+        op("NOT", CPU.NOT, Format.R);
+        op("TRAP", CPU.TRAP, Format.TRAP);
+        op("SRC", CPU.SRC, Format.SHIFT);
+        op("RRC", CPU.RRC, Format.SHIFT);
+        op("FADD", CPU.FADD, Format.MEM_FR);
+        op("FSUB", CPU.FSUB, Format.MEM_FR);
+        op("VADD", CPU.VADD, Format.MEM_FR);
+        op("VSUB", CPU.VSUB, Format.MEM_FR);
+        op("CNVRT", CPU.CNVRT, Format.MEM_R);
+        op("LDFR", CPU.LDFR, Format.MEM_FR);
+        op("STFR", CPU.STFR, Format.MEM_FR);
+        op("IN", CPU.IN, Format.IO);
+        op("OUT", CPU.OUT, Format.IO);
+        op("CHK", CPU.CHK, Format.IO);
+    }
+
+    private static void op(String name, int opcode, Format format) {
+        OPS.put(name, new Op(opcode, format));
+        MNEMONICS[opcode] = name;
+    }
+
+    /**
+     * @return The opcode of a mnemonic, or -1 if there is no such instruction
+     */
+    public static int opcode(String mnemonic) {
+        Op op = OPS.get(mnemonic.toUpperCase(Locale.ROOT));
+        return op == null ? -1 : op.opcode();
+    }
+
+    /**
+     * @return The mnemonic of an opcode, or its hex value if it has none
+     */
+    public static String mnemonic(int opcode) {
+        String name = opcode >= 0 && opcode < MNEMONICS.length ? MNEMONICS[opcode] : null;
+        return name != null ? name : String.format("0x%02x", opcode);
+    }
+
+    /** What a line contributes to the program **/
+    private enum Kind { EMPTY, LOC, DATA, INSTRUCTION }
+
+    /**
+     * A parsed line. word holds the encoding with any symbolic field left at 0;
+     * symbol, if set, is resolved in the second pass into the address field (or the whole word for Data).
+     */
+    private record Statement(String label, Kind kind, int value, short word, String symbol) {}
+
+    /** Parsed statements keyed by line text, holding only the lines of the last source **/
+    private Map<String, Statement> parsed = new HashMap<>();
+    /** Lines parsed rather than found in the cache, over the life of this assembler **/
+    public long linesParsed;
+
+    /**
+     * Binary opcode of a mnemonic
+     * @param op Mnemonic
+     * @return 6 bit opcode as a binary string, or "none" if unknown
+     */
     public String getOpCode(String op){
-        return switch (op) {
-            case "LDR" -> "000001";
-            case "STR" -> "000010";
-            case "LDA" -> "000011";
-            case "LDX" -> "100001";
-            case "STX" -> "101010";
-            case "JZ" -> "001000";
-            case "JNE" -> "001001";
-            case "JCC" -> "001010";
-            case "JMA" -> "001011";
-            case "JSR" -> "001100";
-            case "RFS" -> "001101";
-            case "JGE" -> "001111";
-            case "AMR" -> "000100";
-            case "SMR" -> "000101";
-            case "AIR" -> "000110";
-            case "SIR" -> "000111";
-            default -> "none";
-        };
-    }
-}
\ No newline at end of file
+        Op o = OPS.get(op.toUpperCase(Locale.ROOT));
+        if (o == null) return "none";
+        String bits = Integer.toBinaryString(o.opcode);
+        return "000000".substring(bits.length()) + bits;
+    }
+
+    /**
+     * The result of assembling a source: one word per address, in source order, and the labels
+     */
+    public record Program(int[] addresses, short[] words, Map<String, Integer> labels) {
+        /**
+         * @return Number of words
+         */
+        public int size() {
+            return words.length;
+        }
+
+        /**
+         * Write every word into memory
+         * @throws IndexOutOfBoundsException if an address is outside the installed memory
+         */
+        public void load(Memory memory) {
+            for (int i = 0; i < words.length; i++)
+                memory.write(addresses[i], words[i]);
+        }
+
+        /**
+         * @return The program in the IPL text format, "address value" in hex, one pair per line
+         */
+        public String toIpl() {
+            StringBuilder b = new StringBuilder(words.length * 10);
+            for (int i = 0; i < words.length; i++)
+                b.append(String.format("%04X %04X%n", addresses[i], words[i] & 0xFFFF));
+            return b.toString();
+        }
+
+        /**
+         * Write the program as an IPL text file
+         */
+        public void writeIpl(Path file) throws IOException {
+            Files.writeString(file, toIpl(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Assemble a source file
+     */
+    public Program assemble(Path file) throws IOException {
+        return assemble(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Assemble source lines
+     * @throws IllegalArgumentException naming the line of the first error
+     */
+    public Program assemble(List<String> lines) {
+        // Pass 1: parse (or reuse) every line, lay out addresses and collect labels
+        Statement[] statements = new Statement[lines.size()];
+        int[] locations = new int[lines.size()];
+        Map<String, Integer> labels = new LinkedHashMap<>();
+        Map<String, Statement> previous = parsed;
+        parsed = new HashMap<>(previous.size() * 2);
+        int location = 0, count = 0;
+        for (int n = 0; n < statements.length; n++) {
+            Statement s = statement(previous, lines.get(n), n + 1);
+            statements[n] = s;
+            if (s.kind == Kind.LOC) location = s.value;
+            if (s.label != null && labels.put(s.label, location) != null)
+                throw error(n + 1, "label " + s.label + " is defined twice");
+            if (s.kind == Kind.DATA || s.kind == Kind.INSTRUCTION) {
+                if (location > 0xFFFF) throw error(n + 1, "location " + location + " is beyond the address space");
+                locations[n] = location++;
+                count++;
+            }
+        }
+
+        // Pass 2: resolve labels into the words
+        int[] addresses = new int[count];
+        short[] words = new short[count];
+        int w = 0;
+        for (int n = 0; n < statements.length; n++) {
+            Statement s = statements[n];
+            if (s.kind != Kind.DATA && s.kind != Kind.INSTRUCTION) continue;
+            int word = s.word;
+            if (s.symbol != null) {
+                Integer value = labels.get(s.symbol);
+                if (value == null) throw error(n + 1, "undefined label " + s.symbol);
+                if (s.kind == Kind.DATA) word = value;
+                else word |= field(n + 1, "address", value, 31);
+            }
+            addresses[w] = locations[n];
+            words[w++] = (short) word;
+        }
+        return new Program(addresses, words, labels);
+    }
+
+    /**
+     * Drop the per-line cache
+     */
+    public void clearCache() {
+        parsed.clear();
+    }
+
+    private Statement statement(Map<String, Statement> previous, String line, int number) {
+        Statement s = parsed.get(line);
+        if (s != null) return s;
+        s = previous.get(line);
+        if (s == null) {
+            s = parse(line, number);
+            linesParsed++;
+        }
+        parsed.put(line, s);
+        return s;
+    }
+
+    private Statement parse(String line, int number) {
+        int comment = line.indexOf(';');
+        String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+        String label = null;
+        int colon = text.indexOf(':');
+        if (colon >= 0) {
+            label = text.substring(0, colon).trim();
+            if (!isIdentifier(label)) throw error(number, "bad label '" + label + "'");
+            text = text.substring(colon + 1).trim();
+        }
+        if (text.isEmpty()) return new Statement(label, Kind.EMPTY, 0, (short) 0, null);
+
+        int space = indexOfWhitespace(text);
+        String mnemonic = (space < 0 ? text : text.substring(0, space)).toUpperCase(Locale.ROOT);
+        String rest = space < 0 ? "" : text.substring(space).trim();
+        String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s*,\\s*");
+
+        if (mnemonic.equals("LOC")) {
+            arity(number, mnemonic, args, 1, 1);
+            return new Statement(label, Kind.LOC, field(number, "location", number(number, args[0]), 0xFFFF), (short) 0, null);
+        }
+        if (mnemonic.equals("DATA")) {
+            arity(number, mnemonic, args, 1, 1);
+            if (isIdentifier(args[0])) return new Statement(label, Kind.DATA, 0, (short) 0, args[0]);
+            int value = number(number, args[0]);
+            if (value < Short.MIN_VALUE || value > 0xFFFF) throw error(number, "Data " + value + " does not fit in 16 bits");
+            return new Statement(label, Kind.DATA, 0, (short) value, null);
+        }
+        Op op = OPS.get(mnemonic);
+        if (op == null) throw error(number, "unknown mnemonic " + mnemonic);
+
+        int word = op.opcode << 10;
+        String symbol = null;
+        switch (op.format) {
+            case NONE -> arity(number, mnemonic, args, 0, 0);
+            case MEM_R, MEM_FR, MEM_X -> {
+                int first = op.format == Format.MEM_X ? 0 : 1;
+                arity(number, mnemonic, args, first + 2, first + 3);
+                if (first == 1)
+                    word |= field(number, op.format == Format.MEM_FR ? "fr" : "r", number(number, args[0]),
+                            op.format == Format.MEM_FR ? 1 : 3) << 8;
+                word |= field(number, "x", number(number, args[first]), 3) << 6;
+                if (isIdentifier(args[first + 1])) symbol = args[first + 1];
+                else word |= field(number, "address", number(number, args[first + 1]), 31);
+                if (args.length == first + 3) word |= field(number, "I", number(number, args[first + 2]), 1) << 5;
+            }
+            case IMM_R -> {
+                arity(number, mnemonic, args, 2, 2);
+                word |= field(number, "r", number(number, args[0]), 3) << 8;
+                if (isIdentifier(args[1])) symbol = args[1];
+                else word |= field(number, "immediate", number(number, args[1]), 31);
+            }
+            case IMM -> {
+                arity(number, mnemonic, args, 0, 1);
+                if (args.length == 1) {
+                    if (isIdentifier(args[0])) symbol = args[0];
+                    else word |= field(number, "immediate", number(number, args[0]), 31);
+                }
+            }
+            case RR -> {
+                arity(number, mnemonic, args, 2, 2);
+                int rx = field(number, "rx", number(number, args[0]), 3);
+                int ry = field(number, "ry", number(number, args[1]), 3);
+                if ((op.opcode == CPU.MLT || op.opcode == CPU.DVD) && ((rx | ry) & 1) != 0)
+                    throw error(number, mnemonic + " registers must be 0 or 2");
+                word |= rx << 8 | ry << 6;
+            }
+            case R -> {
+                arity(number, mnemonic, args, 1, 1);
+                word |= field(number, "r", number(number, args[0]), 3) << 8;
+            }
+            case SHIFT -> {
+                arity(number, mnemonic, args, 4, 4);
+                word |= field(number, "r", number(number, args[0]), 3) << 8;
+                word |= field(number, "count", number(number, args[1]), 15);
+                word |= field(number, "L/R", number(number, args[2]), 1) << 6;
+                word |= field(number, "A/L", number(number, args[3]), 1) << 7;
+            }
+            case IO -> {
+                arity(number, mnemonic, args, 2, 2);
+                word |= field(number, "r", number(number, args[0]), 3) << 8;
+                word |= field(number, "device", number(number, args[1]), 31);
+            }
+            case TRAP -> {
+                arity(number, mnemonic, args, 1, 1);
+                word |= field(number, "trap code", number(number, args[0]), 15);
+            }
+        }
+        return new Statement(label, Kind.INSTRUCTION, 0, (short) word, symbol);
+    }
+
+    private static int indexOfWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++)
+            if (Character.isWhitespace(s.charAt(i))) return i;
+        return -1;
+    }
+
+    private static boolean isIdentifier(String s) {
+        if (s.isEmpty() || !(Character.isLetter(s.charAt(0)) || s.charAt(0) == '_')) return false;
+        for (int i = 1; i < s.length(); i++)
+            if (!(Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '_')) return false;
+        return true;
+    }
+
+    private static void arity(int line, String mnemonic, String[] args, int min, int max) {
+        if (args.length < min || args.length > max)
+            throw error(line, mnemonic + " takes " + (min == max ? min : min + " to " + max) + " operands, got " + args.length);
+    }
+
+    private static int number(int line, String s) {
+        try {
+            if (s.startsWith("0x") || s.startsWith("0X")) return Integer.parseInt(s.substring(2), 16);
+            if (s.startsWith("-0x") || s.startsWith("-0X")) return -Integer.parseInt(s.substring(3), 16);
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw error(line, "bad number '" + s + "'");
+        }
+    }
+
+    private static int field(int line, String name, int value, int max) {
+        if (value < 0 || value > max) throw error(line, name + " " + value + " is outside 0.." + max);
+        return value;
+    }
+
+    private static IllegalArgumentException error(int line, String message) {
+        return new IllegalArgumentException("line " + line + ": " + message);
+    }
+}
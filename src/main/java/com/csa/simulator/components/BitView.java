@@ -0,0 +1,40 @@
+package com.csa.simulator.components;
+
+import java.util.function.IntSupplier;
+
+/**
+ * BitView Class - Lazy bit-by-bit view of a packed register for the LED panels.
+ * Bits are indexed the same way as the switches, 0 is the most significant bit.
+ */
+public final class BitView {
+    private final IntSupplier register;
+    private final int width;
+
+    /**
+     * @param register Reads the current register value
+     * @param width Number of bits shown
+     */
+    public BitView(IntSupplier register, int width) {
+        this.register = register;
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return Register value truncated to the view width
+     */
+    public int value() {
+        return register.getAsInt() & ((1 << width) - 1);
+    }
+
+    /**
+     * @param i Bit index, 0 is the most significant bit
+     * @return 1 if the bit is set, 0 otherwise
+     */
+    public char get(int i) {
+        return (char) ((register.getAsInt() >>> (width - 1 - i)) & 1);
+    }
+}
@@ -0,0 +1,224 @@
+package com.csa.simulator.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BlockClass Class - Writes the hidden class behind a translated block.
+ *
+ * The class has one static final MethodHandle field per instruction, loaded from the class
+ * data in its static initializer, and a run method that calls them in order:
+ *
+ *     if (!h0.invokeExact(c, m)) return 1;
+ *     if (!h1.invokeExact(c, m)) return 2;
+ *     ...
+ *     hN.invokeExact(c, m); return N + 1;
+ *
+ * Class file version 49 is used so the branches need no stack map frames.
+ */
+final class BlockClass {
+    private static final String NAME = "com/csa/simulator/components/TranslatedBlock";
+    private static final String HANDLE = "java/lang/invoke/MethodHandle";
+    private static final String STEP = "(Lcom/csa/simulator/components/CPU;Lcom/csa/simulator/components/Memory;)";
+
+    private static final int CLASS = 7, STRING = 8, FIELD = 9, METHOD = 10, NAME_AND_TYPE = 12, UTF8 = 1;
+    private static final int ALOAD_0 = 0x2A, ALOAD_1 = 0x2B, ALOAD_2 = 0x2C, BIPUSH = 0x10, LDC_W = 0x13,
+            IRETURN = 0xAC, RETURN = 0xB1, POP = 0x57, IFNE = 0x9A, GETSTATIC = 0xB2, PUTSTATIC = 0xB3,
+            INVOKEVIRTUAL = 0xB6, INVOKESPECIAL = 0xB7, INVOKESTATIC = 0xB8, CHECKCAST = 0xC0;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private BlockClass() {
+    }
+
+    /**
+     * Define a block class calling the steps in order and return an instance of it
+     * @param lookup Full privilege lookup in this package
+     * @param steps Handles of type (CPU, Memory)boolean, at most 127
+     */
+    static BlockTranslator.Code define(MethodHandles.Lookup lookup, MethodHandle[] steps)
+            throws ReflectiveOperationException {
+        byte[] bytes;
+        try {
+            bytes = new BlockClass().write(steps.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MethodHandles.Lookup block = lookup.defineHiddenClassWithClassData(bytes, List.of(steps), true);
+        try {
+            return (BlockTranslator.Code) block.findConstructor(block.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private byte[] write(int n) throws IOException {
+        if (n < 1 || n > Byte.MAX_VALUE) throw new IllegalArgumentException("Block of " + n + " instructions");
+        int thisClass = classRef(NAME);
+        int superClass = classRef("java/lang/Object");
+        int codeInterface = classRef("com/csa/simulator/components/BlockTranslator$Code");
+        int handleClass = classRef(HANDLE);
+        int objectInit = ref(METHOD, superClass, "<init>", "()V");
+        int invokeExact = ref(METHOD, handleClass, "invokeExact", STEP + "Z");
+        int methodHandles = classRef("java/lang/invoke/MethodHandles");
+        int lookup = ref(METHOD, methodHandles, "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;");
+        int classDataAt = ref(METHOD, methodHandles, "classDataAt",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;");
+        int defaultName = constant(STRING, utf8("_"));
+        int[] fields = new int[n];
+        for (int i = 0; i < n; i++)
+            fields[i] = ref(FIELD, thisClass, "h" + i, "L" + HANDLE + ";");
+        int codeAttribute = utf8("Code");
+        int initName = utf8("<init>"), clinitName = utf8("<clinit>"), runName = utf8("run");
+        int voidType = utf8("()V"), runType = utf8(STEP + "I"), handleType = utf8("L" + HANDLE + ";");
+        int[] fieldNames = new int[n];
+        for (int i = 0; i < n; i++) fieldNames[i] = utf8("h" + i);
+
+        // <init>: super()
+        ByteArrayOutputStream init = new ByteArrayOutputStream();
+        init.write(ALOAD_0);
+        op(init, INVOKESPECIAL, objectInit);
+        init.write(RETURN);
+
+        // <clinit>: hi = (MethodHandle) MethodHandles.classDataAt(lookup(), "_", MethodHandle.class, i)
+        ByteArrayOutputStream clinit = new ByteArrayOutputStream();
+        for (int i = 0; i < n; i++) {
+            op(clinit, INVOKESTATIC, lookup);
+            op(clinit, LDC_W, defaultName);
+            op(clinit, LDC_W, handleClass);
+            clinit.write(BIPUSH);
+            clinit.write(i);
+            op(clinit, INVOKESTATIC, classDataAt);
+            op(clinit, CHECKCAST, handleClass);
+            op(clinit, PUTSTATIC, fields[i]);
+        }
+        clinit.write(RETURN);
+
+        // run(c, m)
+        ByteArrayOutputStream run = new ByteArrayOutputStream();
+        for (int i = 0; i < n; i++) {
+            op(run, GETSTATIC, fields[i]);
+            run.write(ALOAD_1);
+            run.write(ALOAD_2);
+            op(run, INVOKEVIRTUAL, invokeExact);
+            if (i < n - 1) {
+                op(run, IFNE, 3 + 2 + 1); // past the early return below
+            } else {
+                run.write(POP);
+            }
+            run.write(BIPUSH);
+            run.write(i + 1);
+            run.write(IRETURN);
+        }
+
+        // The constant pool is complete from here on
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream c = new DataOutputStream(out);
+        c.writeInt(0xCAFEBABE);
+        c.writeShort(0);
+        c.writeShort(49);
+        c.writeShort(poolCount);
+        pool.flush();
+        poolBytes.writeTo(c);
+        c.writeShort(0x0010 | 0x0020); // final, super
+        c.writeShort(thisClass);
+        c.writeShort(superClass);
+        c.writeShort(1);
+        c.writeShort(codeInterface);
+        c.writeShort(n);
+        for (int i = 0; i < n; i++) {
+            c.writeShort(0x0002 | 0x0008 | 0x0010); // private static final
+            c.writeShort(fieldNames[i]);
+            c.writeShort(handleType);
+            c.writeShort(0);
+        }
+        c.writeShort(3);
+        method(c, 0x0001, initName, voidType, codeAttribute, 1, 1, init);
+        method(c, 0x0008, clinitName, voidType, codeAttribute, 4, 0, clinit);
+        method(c, 0x0001, runName, runType, codeAttribute, 3, 3, run);
+        c.writeShort(0);
+        c.flush();
+        return out.toByteArray();
+    }
+
+    private static void method(DataOutputStream c, int access, int name, int descriptor, int codeAttribute,
+                               int maxStack, int maxLocals, ByteArrayOutputStream code) throws IOException {
+        c.writeShort(access);
+        c.writeShort(name);
+        c.writeShort(descriptor);
+        c.writeShort(1);
+        c.writeShort(codeAttribute);
+        c.writeInt(2 + 2 + 4 + code.size() + 2 + 2);
+        c.writeShort(maxStack);
+        c.writeShort(maxLocals);
+        c.writeInt(code.size());
+        code.writeTo(c);
+        c.writeShort(0); // exception table
+        c.writeShort(0); // attributes
+    }
+
+    private static void op(ByteArrayOutputStream code, int opcode, int operand) {
+        code.write(opcode);
+        code.write(operand >>> 8);
+        code.write(operand);
+    }
+
+    private int utf8(String s) throws IOException {
+        Integer index = entries.get("U" + s);
+        if (index != null) return index;
+        pool.writeByte(UTF8);
+        pool.writeUTF(s);
+        entries.put("U" + s, poolCount);
+        return poolCount++;
+    }
+
+    private int constant(int tag, int a) throws IOException {
+        String key = tag + ":" + a;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+        pool.writeByte(tag);
+        pool.writeShort(a);
+        entries.put(key, poolCount);
+        return poolCount++;
+    }
+
+    private int classRef(String name) throws IOException {
+        return constant(CLASS, utf8(name));
+    }
+
+    private int ref(int tag, int owner, String name, String descriptor) throws IOException {
+        int nameAndType = utf8(name);
+        int type = utf8(descriptor);
+        String key = NAME_AND_TYPE + ":" + nameAndType + ":" + type;
+        Integer nat = entries.get(key);
+        if (nat == null) {
+            pool.writeByte(NAME_AND_TYPE);
+            pool.writeShort(nameAndType);
+            pool.writeShort(type);
+            nat = poolCount++;
+            entries.put(key, nat);
+        }
+        String refKey = tag + ":" + owner + ":" + nat;
+        Integer index = entries.get(refKey);
+        if (index != null) return index;
+        pool.writeByte(tag);
+        pool.writeShort(owner);
+        pool.writeShort(nat);
+        entries.put(refKey, poolCount);
+        return poolCount++;
+    }
+}
@@ -0,0 +1,207 @@
+package com.csa.simulator.components;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BlockTranslator Class - Second tier of the execution engine.
+ * Machine.run counts how often each PC is reached by the interpreter; once an address
+ * is hot, the straight-line code from there up to and including the next jump
+ * (JZ, JNE, JCC, JMA, JSR, RFS, SOB, JGE) is compiled into a hidden class.
+ *
+ * Each instruction of a block becomes a MethodHandle with its address, decoded form and
+ * Handler bound in, held in a static final field of the block's class, so HotSpot sees
+ * them as constants: every handler call site is monomorphic and the whole block inlines
+ * into one compiled method. A block leaves early when an instruction does not fall through to
+ * the next word (a fault), when the block has been invalidated or when a watchpoint stops
+ * the run. Blocks end before any breakpoint address.
+ *
+ * Every store goes through DecodeCache.invalidate, which drops the blocks covering the
+ * address; program loads, checkpoint restores and resets drop them all.
+ */
+public final class BlockTranslator {
+    /** Interpreted visits to an address before a block is compiled from it **/
+    public static final int HOT_THRESHOLD = 64;
+    /** Longest block in instructions **/
+    public static final int MAX_BLOCK = 64;
+    /** Words 0-9 are reserved and written by the CPU itself, code there is never compiled **/
+    private static final int FIRST_CODE = 10;
+    private static final MethodHandle STEP;
+
+    static {
+        try {
+            STEP = MethodHandles.lookup().findStatic(BlockTranslator.class, "step", MethodType.methodType(
+                    boolean.class, Block.class, int.class, DecodedInstruction.class, Handler.class,
+                    CPU.class, Memory.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Compiled form of a block, implemented by the generated hidden classes
+     */
+    interface Code {
+        /**
+         * @return Number of instructions executed
+         */
+        int run(CPU c, Memory m);
+    }
+
+    /**
+     * A compiled block of the words start to end - 1
+     */
+    static final class Block {
+        final int start, end;
+        Code code;
+        /** Cleared when a word of the block is written **/
+        boolean valid = true;
+
+        Block(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** Run blocks from Machine.run; when false everything is interpreted **/
+    public boolean enabled = true;
+    /** Addresses blocks must not contain, set by Machine **/
+    Breakpoints breakpoints;
+    public long compiled, invalidated;
+
+    private final int size;
+    /** Block starting at each address, null if none **/
+    private final Block[] entries;
+    /** Interpreted visits per address, negative once found untranslatable **/
+    private final int[] heat;
+    /** Number of live blocks covering each address **/
+    private final byte[] covered;
+
+    /**
+     * @param size Number of memory words covered
+     */
+    public BlockTranslator(int size) {
+        this.size = size;
+        entries = new Block[size];
+        heat = new int[size];
+        covered = new byte[size];
+    }
+
+    /**
+     * Run the block at the PC, compiling it if the address just became hot
+     * @param budget Most instructions the block may execute
+     * @return Number of instructions executed, 0 if the caller should interpret
+     */
+    int run(CPU c, Memory m, long budget) {
+        int pc = c.PC & 0xFFFF;
+        if (pc >= size) return 0;
+        Block b = entries[pc];
+        if (b == null) {
+            if (++heat[pc] < HOT_THRESHOLD) return 0;
+            b = compile(pc, m);
+            if (b == null) {
+                heat[pc] = Integer.MIN_VALUE;
+                return 0;
+            }
+        }
+        if (b.end - b.start > budget) return 0;
+        return b.code.run(c, m);
+    }
+
+    /**
+     * One instruction of a block, with the same effect as Machine.step and CPU.execute
+     * but with the handler bound as a constant instead of read from the decoded record
+     * @return true if execution falls through to the next word of a still valid block
+     */
+    private static boolean step(Block b, int pc, DecodedInstruction d, Handler h, CPU c, Memory m) {
+        c.IR = d.word();
+        c.cache.read(pc, c.IR);
+        if (c.verbose) System.out.printf("OpCode: 0x%-2x\n", d.opcode());
+        try {
+            h.execute(c, c.effectiveAddress(d, m), m);
+        } catch (IndexOutOfBoundsException ioobe) {
+            c.addressFault(m);
+        }
+        c.retire(d, m);
+        Machine.advance(c, m, pc);
+        return (c.PC & 0xFFFF) == pc + 1 && b.valid && (m.watch == null || !m.watch.triggered);
+    }
+
+    private Block compile(int start, Memory m) {
+        if (start < FIRST_CODE) return null;
+        List<DecodedInstruction> body = new ArrayList<>();
+        for (int a = start; a < size && body.size() < MAX_BLOCK; a++) {
+            if (breakpoints != null && breakpoints.isBreakpoint(a)) break;
+            DecodedInstruction d = DecodedInstruction.decode(m.fetch(a));
+            if (!translatable(d)) break;
+            body.add(d);
+            if (isJump(d.opcode())) break;
+        }
+        if (body.isEmpty()) return null;
+        Block b = new Block(start, start + body.size());
+        MethodHandle[] steps = new MethodHandle[body.size()];
+        for (int i = 0; i < steps.length; i++)
+            steps[i] = MethodHandles.insertArguments(STEP, 0, b, start + i, body.get(i), body.get(i).handler());
+        try {
+            b.code = BlockClass.define(MethodHandles.lookup(), steps);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+        entries[start] = b;
+        for (int a = b.start; a < b.end; a++) covered[a]++;
+        compiled++;
+        return b;
+    }
+
+    private static boolean isJump(int opcode) {
+        return opcode >= CPU.JZ && opcode <= CPU.JGE;
+    }
+
+    /**
+     * HLT is left to the interpreter so it can set the halted flag, as are unknown opcodes
+     */
+    private static boolean translatable(DecodedInstruction d) {
+        return d.opcode() != CPU.HLT && d.handler() != Handlers.ILLEGAL;
+    }
+
+    /**
+     * Drop the blocks covering a memory word that was written
+     */
+    void invalidate(int address) {
+        if (address < 0 || address >= size || covered[address] == 0) return;
+        for (int s = Math.max(0, address - MAX_BLOCK + 1); s <= address; s++) {
+            Block b = entries[s];
+            if (b != null && b.end > address) drop(b);
+        }
+    }
+
+    /**
+     * Drop the blocks covering a range of memory words that were written
+     */
+    void invalidate(int from, int length) {
+        for (int a = from; a < from + length; a++) invalidate(a);
+    }
+
+    private void drop(Block b) {
+        b.valid = false;
+        entries[b.start] = null;
+        heat[b.start] = 0;
+        for (int a = b.start; a < b.end; a++) covered[a]--;
+        invalidated++;
+    }
+
+    /**
+     * Drop every block and forget the profile (after a reset or a program load)
+     */
+    public void clear() {
+        for (Block b : entries)
+            if (b != null) b.valid = false;
+        Arrays.fill(entries, null);
+        Arrays.fill(heat, 0);
+        Arrays.fill(covered, (byte) 0);
+    }
+}
@@ -0,0 +1,243 @@
+package com.csa.simulator.components;
+
+/**
+ * BranchPredictor Class - Simulated branch prediction for the jump family, attached as a
+ * Machine probe. Each jump the CPU resolves is first predicted: the direction by the
+ * subclass (conditional jumps JZ, JNE, JCC, SOB and JGE only; JMA, JSR and RFS are always
+ * taken) and, for a taken prediction, the target by a direct-mapped branch target buffer.
+ * A prediction is correct if the direction matches and, when taken, the BTB held the
+ * actual target.
+ *
+ * Predictor state, the BTB and the per-address statistics are all primitive arrays.
+ * Several predictors can be attached to one machine to compare them on the same run.
+ */
+public abstract class BranchPredictor implements ExecutionProbe {
+    /** Jumps resolved and mispredicted per address **/
+    public final long[] branches, mispredicted;
+    /** Total jumps, wrong directions and taken jumps whose target the BTB missed **/
+    public long total, directionMisses, targetMisses;
+
+    private final int btbMask;
+    /** Branch address + 1 of each BTB entry, 0 if empty **/
+    private final int[] btbTags;
+    private final int[] btbTargets;
+
+    /**
+     * @param size       Number of memory words, for the per-address statistics
+     * @param btbEntries BTB entries (power of two)
+     */
+    protected BranchPredictor(int size, int btbEntries) {
+        if (Integer.bitCount(btbEntries) != 1) throw new IllegalArgumentException("BTB size must be a power of two");
+        branches = new long[size];
+        mispredicted = new long[size];
+        btbMask = btbEntries - 1;
+        btbTags = new int[btbEntries];
+        btbTargets = new int[btbEntries];
+    }
+
+    /**
+     * @return true to predict the conditional jump at pc taken
+     */
+    protected abstract boolean predict(int pc);
+
+    /**
+     * Learn the outcome of the conditional jump at pc
+     */
+    protected abstract void update(int pc, boolean taken);
+
+    /**
+     * @return Short name for reports
+     */
+    public abstract String name();
+
+    /**
+     * Attach to a machine, which interprets every instruction from now on
+     */
+    public BranchPredictor attach(Machine machine) {
+        machine.addProbe(this);
+        return this;
+    }
+
+    @Override
+    public void executed(CPU c, int pc) {
+        int opcode = (c.IR >>> 10) & 0x3F;
+        if (opcode < CPU.JZ || opcode > CPU.JGE) return;
+        int next = c.PC & 0xFFFF;
+        boolean taken = c.jumped;
+        boolean conditional = opcode != CPU.JMA && opcode != CPU.JSR && opcode != CPU.RFS;
+        boolean predicted = !conditional || predict(pc);
+        boolean wrong = predicted != taken;
+        if (wrong) directionMisses++;
+        int slot = pc & btbMask;
+        if (taken) {
+            if (!wrong && (btbTags[slot] != pc + 1 || btbTargets[slot] != next)) {
+                wrong = true;
+                targetMisses++;
+            }
+            btbTags[slot] = pc + 1;
+            btbTargets[slot] = next;
+        }
+        if (conditional) update(pc, taken);
+        total++;
+        branches[pc]++;
+        if (wrong) mispredicted[pc]++;
+    }
+
+    /**
+     * @return Fraction of jumps predicted correctly
+     */
+    public double accuracy() {
+        return total == 0 ? 1 : 1 - (double) (directionMisses + targetMisses) / total;
+    }
+
+    /**
+     * Totals, then every jump executed with its misprediction rate
+     */
+    public String report(Memory memory) {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%s: %d jumps, %.2f%% correct, %d wrong direction, %d BTB target misses%n",
+                name(), total, 100 * accuracy(), directionMisses, targetMisses));
+        for (int a = 0; a < branches.length; a++) {
+            if (branches[a] == 0) continue;
+            b.append(String.format("  0x%04x %-4s %12d %12d mispredicted %7.2f%%%n", a,
+                    Assembler.mnemonic((memory.fetch(a) >>> 10) & 0x3F), branches[a], mispredicted[a],
+                    100.0 * mispredicted[a] / branches[a]));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Always predicts the same direction
+     */
+    public static final class Static extends BranchPredictor {
+        private final boolean taken;
+
+        public Static(int size, int btbEntries, boolean taken) {
+            super(size, btbEntries);
+            this.taken = taken;
+        }
+
+        @Override
+        protected boolean predict(int pc) {
+            return taken;
+        }
+
+        @Override
+        protected void update(int pc, boolean taken) {
+        }
+
+        @Override
+        public String name() {
+            return taken ? "static taken" : "static not taken";
+        }
+    }
+
+    /**
+     * Predicts what the jump did last time, one bit per table entry
+     */
+    public static final class OneBit extends BranchPredictor {
+        private final boolean[] last;
+        private final int mask;
+
+        /**
+         * @param entries Table entries indexed by address (power of two)
+         */
+        public OneBit(int size, int btbEntries, int entries) {
+            super(size, btbEntries);
+            if (Integer.bitCount(entries) != 1) throw new IllegalArgumentException("Table size must be a power of two");
+            last = new boolean[entries];
+            mask = entries - 1;
+        }
+
+        @Override
+        protected boolean predict(int pc) {
+            return last[pc & mask];
+        }
+
+        @Override
+        protected void update(int pc, boolean taken) {
+            last[pc & mask] = taken;
+        }
+
+        @Override
+        public String name() {
+            return "1-bit";
+        }
+    }
+
+    /**
+     * Two-bit saturating counters indexed by address, taken at 2 and 3
+     */
+    public static final class TwoBit extends BranchPredictor {
+        private final byte[] counters;
+        private final int mask;
+
+        public TwoBit(int size, int btbEntries, int entries) {
+            super(size, btbEntries);
+            if (Integer.bitCount(entries) != 1) throw new IllegalArgumentException("Table size must be a power of two");
+            counters = new byte[entries];
+            mask = entries - 1;
+        }
+
+        @Override
+        protected boolean predict(int pc) {
+            return counters[pc & mask] >= 2;
+        }
+
+        @Override
+        protected void update(int pc, boolean taken) {
+            counters[pc & mask] = saturate(counters[pc & mask], taken);
+        }
+
+        @Override
+        public String name() {
+            return "2-bit";
+        }
+    }
+
+    /**
+     * Two-bit counters indexed by the address XORed with the global history of the last
+     * historyBits conditional jumps
+     */
+    public static final class Gshare extends BranchPredictor {
+        private final byte[] counters;
+        private final int mask, historyMask;
+        private int history;
+
+        /**
+         * @param entries     Counters (power of two)
+         * @param historyBits Conditional jump outcomes remembered, at most log2(entries)
+         */
+        public Gshare(int size, int btbEntries, int entries, int historyBits) {
+            super(size, btbEntries);
+            if (Integer.bitCount(entries) != 1) throw new IllegalArgumentException("Table size must be a power of two");
+            if (historyBits < 0 || 1 << historyBits > entries)
+                throw new IllegalArgumentException("History longer than the table index");
+            counters = new byte[entries];
+            mask = entries - 1;
+            historyMask = (1 << historyBits) - 1;
+        }
+
+        @Override
+        protected boolean predict(int pc) {
+            return counters[(pc ^ history) & mask] >= 2;
+        }
+
+        @Override
+        protected void update(int pc, boolean taken) {
+            int i = (pc ^ history) & mask;
+            counters[i] = saturate(counters[i], taken);
+            history = ((history << 1) | (taken ? 1 : 0)) & historyMask;
+        }
+
+        @Override
+        public String name() {
+            return "gshare/" + Integer.bitCount(historyMask);
+        }
+    }
+
+    private static byte saturate(byte counter, boolean taken) {
+        if (taken) return counter < 3 ? (byte) (counter + 1) : counter;
+        return counter > 0 ? (byte) (counter - 1) : counter;
+    }
+}
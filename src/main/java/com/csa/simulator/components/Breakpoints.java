@@ -0,0 +1,268 @@
+package com.csa.simulator.components;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Breakpoints Class - Execution breakpoints and memory read/write watchpoints of a machine.
+ *
+ * Each kind is a bitmap with one bit per address, so the run loop only tests a bit before
+ * an instruction and Memory only tests one on an access while watchpoints are set. An
+ * optional condition on register or memory values is looked up only when the bit is set.
+ *
+ * Machine.run stops before executing an instruction at a breakpoint, and after an
+ * instruction whose data access hit a watchpoint; instruction fetches do not count as reads.
+ * Translated blocks never contain a breakpoint address, so they keep running at full speed
+ * between stops. A run started at the breakpoint it stopped on executes it.
+ */
+public final class Breakpoints {
+    public enum Kind { EXECUTE, READ, WRITE }
+
+    /**
+     * Test made when an address's bit is hit; the stop only happens if it holds.
+     * It runs with watchpoints off, so it may read memory freely.
+     */
+    @FunctionalInterface
+    public interface Condition {
+        boolean test(CPU c, Memory m);
+    }
+
+    private final CPU cpu;
+    private final Memory memory;
+    private final BlockTranslator translator;
+    /** One bit per address for each Kind **/
+    final long[] execute, read, write;
+    /** Conditions by kind ordinal << 16 | address **/
+    private final Map<Integer, Condition> conditions = new HashMap<>();
+    private int watchpoints;
+    /** Set while a condition is tested **/
+    private boolean testing;
+
+    /** Set when a watchpoint stops the run, cleared when the next run starts **/
+    boolean triggered;
+    /** What stopped the last run, null if nothing did **/
+    public Kind stop;
+    /** Breakpoint or watched address, and the address of the instruction that stopped **/
+    public int stopAddress, stopPc;
+    /** Bitmap hits, and stops after their conditions **/
+    public long hits, stops;
+
+    Breakpoints(CPU cpu, Memory memory, BlockTranslator translator) {
+        this.cpu = cpu;
+        this.memory = memory;
+        this.translator = translator;
+        int words = (memory.addressMask >>> 6) + 1;
+        execute = new long[words];
+        read = new long[words];
+        write = new long[words];
+    }
+
+    private long[] bitmap(Kind kind) {
+        return switch (kind) {
+            case EXECUTE -> execute;
+            case READ -> read;
+            case WRITE -> write;
+        };
+    }
+
+    /**
+     * Set an unconditional breakpoint or watchpoint
+     */
+    public void set(Kind kind, int address) {
+        set(kind, address, 1, null);
+    }
+
+    /**
+     * Set a breakpoint or watchpoint on length words from address
+     * @param condition Tested on every hit, null to always stop
+     * @throws IndexOutOfBoundsException if the range is outside the address space
+     */
+    public void set(Kind kind, int address, int length, Condition condition) {
+        long[] bits = bitmap(kind);
+        Objects.checkFromIndexSize(address, length, memory.addressMask + 1);
+        for (int a = address; a < address + length; a++) {
+            if ((bits[a >>> 6] & 1L << a) == 0 && kind != Kind.EXECUTE) watchpoints++;
+            bits[a >>> 6] |= 1L << a;
+            if (condition != null) conditions.put(kind.ordinal() << 16 | a, condition);
+            else conditions.remove(kind.ordinal() << 16 | a);
+            if (kind == Kind.EXECUTE) translator.invalidate(a);
+        }
+        if (kind != Kind.EXECUTE) memory.watch = this;
+    }
+
+    /**
+     * Remove breakpoints or watchpoints from length words from address
+     */
+    public void clear(Kind kind, int address, int length) {
+        long[] bits = bitmap(kind);
+        Objects.checkFromIndexSize(address, length, memory.addressMask + 1);
+        for (int a = address; a < address + length; a++) {
+            if ((bits[a >>> 6] & 1L << a) == 0) continue;
+            bits[a >>> 6] &= ~(1L << a);
+            conditions.remove(kind.ordinal() << 16 | a);
+            if (kind != Kind.EXECUTE) watchpoints--;
+            // The block ending before the breakpoint can grow past it again
+            else if (a > 0) translator.invalidate(a - 1);
+        }
+        if (watchpoints == 0) memory.watch = null;
+    }
+
+    /**
+     * Remove every breakpoint and watchpoint
+     */
+    public void clearAll() {
+        for (Kind kind : Kind.values()) clear(kind, 0, memory.addressMask + 1);
+    }
+
+    public boolean isSet(Kind kind, int address) {
+        return (bitmap(kind)[address >>> 6] & 1L << address) != 0;
+    }
+
+    /**
+     * Bitmap test for the run loop and the translator
+     */
+    boolean isBreakpoint(int pc) {
+        return (execute[pc >>> 6] & 1L << pc) != 0;
+    }
+
+    /**
+     * The run is at a breakpoint: test its condition and record the stop
+     * @return true to stop before the instruction at pc
+     */
+    boolean breaksAt(int pc) {
+        if (!hit(Kind.EXECUTE, pc)) return false;
+        stopPc = pc;
+        return true;
+    }
+
+    /**
+     * Called by Memory for every data read while watchpoints are set
+     */
+    void reading(int address) {
+        if ((read[address >>> 6] & 1L << address) != 0 && hit(Kind.READ, address)) {
+            stopPc = cpu.PC & 0xFFFF;
+            triggered = true;
+        }
+    }
+
+    /**
+     * Called by Memory after every write while watchpoints are set
+     */
+    void written(int address) {
+        if ((write[address >>> 6] & 1L << address) != 0 && hit(Kind.WRITE, address)) {
+            stopPc = cpu.PC & 0xFFFF;
+            triggered = true;
+        }
+    }
+
+    private boolean hit(Kind kind, int address) {
+        if (testing) return false;
+        hits++;
+        Condition condition = conditions.get(kind.ordinal() << 16 | address);
+        if (condition != null) {
+            testing = true;
+            try {
+                if (!condition.test(cpu, memory)) return false;
+            } finally {
+                testing = false;
+            }
+        }
+        stop = kind;
+        stopAddress = address;
+        stops++;
+        return true;
+    }
+
+    /**
+     * Forget the last stop. Machine.run does this when it starts; a caller that checks
+     * isStopped before running, like the GUI's Run, does it first.
+     */
+    public void clearStop() {
+        triggered = false;
+        stop = null;
+    }
+
+    /**
+     * @return Condition that holds when a register has a value
+     * @param register R0-R3, X1-X3, PC, MAR, MBR, IR, CC or MFR
+     * @throws IllegalArgumentException for an unknown register name
+     */
+    public static Condition registerEquals(String register, int value) {
+        String r = register.toUpperCase(Locale.ROOT);
+        short v = (short) value;
+        if (r.matches("R[0-3]")) {
+            int i = r.charAt(1) - '0';
+            return (c, m) -> c.R[i] == v;
+        }
+        if (r.matches("X[1-3]")) {
+            int i = r.charAt(1) - '0';
+            return (c, m) -> c.X[i] == v;
+        }
+        return switch (r) {
+            case "PC" -> (c, m) -> c.PC == v;
+            case "MAR" -> (c, m) -> c.MAR == v;
+            case "MBR" -> (c, m) -> c.MBR == v;
+            case "IR" -> (c, m) -> c.IR == v;
+            case "CC" -> (c, m) -> c.CC == v;
+            case "MFR" -> (c, m) -> c.MFR == v;
+            default -> throw new IllegalArgumentException("Unknown register " + register);
+        };
+    }
+
+    /**
+     * @return Condition that holds when a memory word has a value
+     */
+    public static Condition memoryEquals(int address, int value) {
+        short v = (short) value;
+        return (c, m) -> m.read(address) == v;
+    }
+
+    /**
+     * Set breakpoints from a list separated by spaces or commas. Each entry is a hex address
+     * or range (40, 100-10F), prefixed with r or w for a read or write watchpoint, and may end
+     * with a condition: :R0=5, :X1=0, or :[1A]=3 for a memory word, values in hex.
+     * @throws IllegalArgumentException for an entry that does not parse
+     */
+    public void parse(String spec) {
+        for (String entry : spec.trim().split("[\\s,]+")) {
+            if (entry.isEmpty()) continue;
+            try {
+                String e = entry.toLowerCase(Locale.ROOT);
+                Kind kind = Kind.EXECUTE;
+                if (e.startsWith("r")) kind = Kind.READ;
+                else if (e.startsWith("w")) kind = Kind.WRITE;
+                if (kind != Kind.EXECUTE) e = e.substring(1);
+                Condition condition = null;
+                int colon = e.indexOf(':');
+                if (colon >= 0) {
+                    String[] test = e.substring(colon + 1).split("=", 2);
+                    int value = Integer.parseInt(test[1], 16);
+                    condition = test[0].startsWith("[") && test[0].endsWith("]")
+                            ? memoryEquals(Integer.parseInt(test[0].substring(1, test[0].length() - 1), 16), value)
+                            : registerEquals(test[0], value);
+                    e = e.substring(0, colon);
+                }
+                int dash = e.indexOf('-');
+                int from = Integer.parseInt(dash < 0 ? e : e.substring(0, dash), 16);
+                int to = dash < 0 ? from : Integer.parseInt(e.substring(dash + 1), 16);
+                set(kind, from, to - from + 1, condition);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Bad breakpoint " + entry, ex);
+            }
+        }
+    }
+
+    /**
+     * @return What stopped the last run, empty if nothing did
+     */
+    public String describeStop() {
+        if (stop == null) return "";
+        return switch (stop) {
+            case EXECUTE -> String.format("Breakpoint at %04X", stopAddress);
+            case READ -> String.format("Read of %04X at %04X", stopAddress, stopPc);
+            case WRITE -> String.format("Write of %04X at %04X", stopAddress, stopPc);
+        };
+    }
+}
@@ -1,6 +1,5 @@
 package com.csa.simulator.components;
 
-import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -10,33 +9,73 @@ import java.util.Arrays;
  * The CPU class is also responsible for handling the registers and the memory operations
  */
 public class CPU extends Converter {
-    public char[] GPR0;
-    public char[] GPR1;
-    public char[] GPR2;
-    public char[] GPR3;
-    public char[] PC;
-    /** Condition Code **/
-    public char[] CC;
+    /** Program Counter (addressBits wide, 12 bits on the original machine) **/
+    public short PC;
+    /** Condition Code (4 bits, CC[0] of the old bit array is the most significant bit) **/
+    public byte CC;
     /** Instruction Register **/
-    public char[] IR;
-    /** Memory Address Register **/
-    public char[] MAR;
+    public short IR;
+    /** Memory Address Register (addressBits wide) **/
+    public short MAR;
     /** Memory Buffer Register **/
-    public char[] MBR;
-    /** Memory Fault Register **/
-    public char[] MFR;
-    /** General Purpose Register **/
-    public char[] R0,R1,R2,R3;
-    /** Index Registers **/
-    public char[] X1,X2,X3;
+    public short MBR;
+    /** Memory Fault Register (4 bits, MFR[0] of the old bit array is the most significant bit) **/
+    public byte MFR;
+    /** General Purpose Registers R0-R3 **/
+    public final short[] R = new short[4];
+    /** Index Registers X1-X3, X[0] is never written so an IX field of 0 adds nothing **/
+    public final short[] X = new short[4];
     /** Device Interface **/
-    private final Devices dev;
+    final IODevice dev;
     /** Floating Point Registers */
     public FloatingPointRegisters FR;
     /**
      * Cache Functionality
      */
     public Cache cache;
+    /** Cycle costs of instructions and cache accesses **/
+    private CycleModel costs = CycleModel.defaults();
+    /** Simulated clock, without the cache accesses made since chargedHits / chargedMisses **/
+    private long cycles;
+    private long chargedHits, chargedMisses;
+    /**
+     * Pre-decoded instructions keyed by address
+     */
+    public final DecodeCache decoded;
+    /**
+     * Print each opcode to stdout as it executes (debugging only, allocates per instruction)
+     */
+    public boolean verbose = false;
+    /** Mask for the PC and MAR, set from the memory address width **/
+    public final int addressMask;
+    /** Addresses are unsigned 16 bit words, EA is held in a short **/
+    private static final int WORD_MASK = 0xFFFF;
+    /**
+     * Bits of the dirty mask, one per front panel register group
+     */
+    public static final int DIRTY_R0 = 1, DIRTY_R1 = 1 << 1, DIRTY_R2 = 1 << 2, DIRTY_R3 = 1 << 3;
+    public static final int DIRTY_X1 = 1 << 4, DIRTY_X2 = 1 << 5, DIRTY_X3 = 1 << 6;
+    public static final int DIRTY_PC = 1 << 7, DIRTY_MAR = 1 << 8, DIRTY_MBR = 1 << 9;
+    public static final int DIRTY_IR = 1 << 10, DIRTY_MFR = 1 << 11;
+    public static final int DIRTY_ALL = (1 << 12) - 1;
+    /** Registers changed since the display last called takeDirty **/
+    public int dirty = DIRTY_ALL;
+    /** Whether the last jump instruction transferred control: its condition held, or it always jumps **/
+    public boolean jumped;
+    /**
+     * Machine Fault bits in MFR
+     */
+    public static final byte MF_ILLEGAL_ADDRESS = 0b1000; // Memory address beyond the installed memory
+    public static final byte MF_ILLEGAL_OPCODE = 0b0100;  // Opcode not implemented
+    public static final byte MF_ILLEGAL_TRAP = 0b0010;    // Trap code not implemented
+    public static final byte MF_RESERVED_ADDRESS = 0b0001; // Store to a reserved location (0-9)
+    /**
+     * Condition Code bits in CC
+     */
+    public static final byte CC_OVERFLOW = 0b1000;
+    public static final byte CC_UNDERFLOW = 0b0100;
+    public static final byte CC_DIVZERO = 0b0010;
+    public static final byte CC_EQUALORNOT = 0b0001;
     /**
      * Define OpCode Inst
      */
@@ -155,307 +194,268 @@ public class CPU extends Converter {
     static final short STFR = 0x29;
 
 
-
-
+    /**
+     * Constructor to Initialize the CPU for the original 2048 word, 12 bit machine
+     */
+    public CPU(IODevice dev)
+    {
+        this(dev, Memory.KB2, Memory.DEFAULT_ADDRESS_BITS);
+    }
 
     /**
-     * Constructor to Initialize the CPU
+     * @param memorySize Installed memory words, for the decode cache
+     * @param addressBits Width of PC and MAR
      */
-    public CPU(Devices dev)
+    public CPU(IODevice dev, int memorySize, int addressBits)
     {
         this.dev = dev;
-        GPR0 = new char[16];
-        GPR1 = new char[16];
-        GPR2 = new char[16];
-        GPR3 = new char[16];
+        this.addressMask = (1 << addressBits) - 1;
         FR = new FloatingPointRegisters();
-        PC = new char[12];
-        CC = new char[4];
-        IR = new char[16];
-        MAR = new char[12];
-        MBR = new char[16];
-        MFR = new char[4];
-        X1 = new char[16];
-        X2 = new char[16];
-        X3 = new char[16];
-        R0 = new char[16];
-        R1 = new char[16];
-        R2 = new char[16];
-        R3 = new char[16];
-        for (int i = 0; i < 16; i++) {
-            GPR0[i] = 0;
-            GPR1[i] = 0;
-            GPR2[i] = 0;
-            GPR3[i] = 0;
-            X1[i] = 0;
-            X2[i] = 0;
-            X3[i] = 0;
-            MBR[i] = 0;
-            IR[i] = 0;
-        }
-        for (int i = 0; i < 12; i++) {
-            PC[i] = 0;
-            MAR[i] = 0;
-        }
-        for(int i=0;i<4;i++){
-            CC[i] = 0;
-            MFR[i] = 0;
-        }
-        for(int i=0;i<16;i++){
-            IR[i] = 0;
-            MBR[i] = 0;
-            X1[i] = X2[i] = X3[i] = 0;
-            R0[i] = R1[i] = R2[i] = R3[i] = 0;
-        }
         cache = new Cache();
+        decoded = new DecodeCache(memorySize);
     }
 
-
     /**
-     * CopyArray_src_dest - Copies the source array to the destination array
-     * @param src - Source array
-     * @param des - Destination array
-     * @param len - Length of the array
+     * Read an operand word, recording the access in the cache
      */
-    public void CopyArr(char[] src, char[] des, int len) {
-        if (len >= 0) System.arraycopy(src, 0, des, 0, len);
+    private short MemRead(Memory m, int addr){
+        addr &= WORD_MASK;
+        short value = m.read(addr);
+        cache.read(addr, value);
+        return value;
+    }
+    /**
+     * Write an operand word, recording the access in the cache
+     * and dropping any decoded instruction held for that address
+     */
+    private void MemWrite(Memory m, int addr, short value){
+        addr &= WORD_MASK;
+        m.write(addr, value);
+        cache.write(addr, value);
+        decoded.invalidate(addr);
     }
     /**
      * Internal Function that fetches the Effective address effectively
      */
-    private short FetchEA(char[] ix, char[] addr, Memory m, char I){
-        byte IXVal = (byte)BinaryToDecimal(ix,2);
-        short EA = BinaryToDecimal(addr,5);
-        switch(IXVal){
-            case 0:
-                break;
-            case 1:
-                EA += BinaryToDecimal(X1,16);
-                break;
-            case 2:
-                EA += BinaryToDecimal(X2,16);
-                break;
-            case 3:
-                EA += BinaryToDecimal(X3,16);
-                break;
-            default:
-                break;
-        }
-        if(I==1) {
-            m.data[6] = EA;
-            return m.data[EA];
+    private short FetchEA(int ix, short addr, Memory m, boolean I){
+        short EA = (short)(addr + X[ix]);
+        if(I) {
+            m.write(6, EA);
+            return MemRead(m, EA);
         }
         return EA;
     }
     /**
      * Internal Function That Loads the value in to the specified register
      */
-    private void StoreRegister(char[] rx, short EA, Memory m){
-        byte RVal= (byte)BinaryToDecimal(rx,2);
-        DecimalToBinary(EA,MAR,12);
-        DecimalToBinary(m.data[EA],MBR,16);
-        switch(RVal){
-            case 0:
-                CopyArr(MBR, R0, 16);
-                break;
-            case 1:
-                CopyArr(MBR, R1, 16);
-                break;
-            case 2:
-                CopyArr(MBR, R2, 16);
-                break;
-            case 3:
-                CopyArr(MBR, R3, 16);
-                break;
-        }
+    void StoreRegister(int rx, short EA, Memory m){
+        MAR = (short)(EA & addressMask);
+        MBR = MemRead(m, EA);
+        R[rx] = MBR;
     }
 
     /**
      * Internal Function That Loads the value from memory 
      * into the specified index register
      */
-    private void StoreIndexRegister(char[] ix, short EA, Memory m){
-        byte RVal= (byte)BinaryToDecimal(ix,2);
-        DecimalToBinary(EA,MAR,12);
-        DecimalToBinary(m.data[EA],MBR,16);
-        switch(RVal){
-            case 1:
-                CopyArr(MBR, X1, 16);
-                break;
-            case 2:
-                CopyArr(MBR, X2, 16);
-                break;
-            case 3:
-                CopyArr(MBR, X3, 16);
-                break;
-            default: break;
-        }
+    void StoreIndexRegister(int ix, short EA, Memory m){
+        MAR = (short)(EA & addressMask);
+        MBR = MemRead(m, EA);
+        if(ix != 0) X[ix] = MBR;
     }
 
     /**
      * Store memory from register
      * data[EA] = Value(RXVal)
      */
-    private void MemStore(char[] rx, short EA, Memory m){
-        byte RVal = (byte)BinaryToDecimal(rx,2);
-        char[] R_x = getRegister(RVal);
-        DecimalToBinary(EA,MAR,12);
-        CopyArr(R_x, MBR, 16);
-        if(EA>=0 && EA<=9) {
-            MFR[3]=1;
-            m.data[4] = BinaryToDecimal(PC, 12);
+    void MemStore(int rx, short EA, Memory m){
+        MAR = (short)(EA & addressMask);
+        MBR = R[rx];
+        if((EA & WORD_MASK) <= 9) {
+            MFR |= MF_RESERVED_ADDRESS;
+            m.write(4, PC);
             return;
         }
-        m.data[EA] = BinaryToDecimal(MBR,16);
+        MemWrite(m, EA, MBR);
     }
 
     /**
      * Store memory from index register
      * data[EA] = Value(IXVal)
      */
-    private void MemStoreFromIndex(char[] ix, short EA, Memory m){
-        byte XVal = (byte)BinaryToDecimal(ix,2);
-        DecimalToBinary(EA,MAR,12);
-        switch(XVal){
-            case 0:
-                break;
-            case 1:
-                CopyArr(X1, MBR, 16);
-                break;
-            case 2:
-                CopyArr(X2, MBR, 16);
-                break;
-            case 3:
-                CopyArr(X3, MBR, 16);
-                break;
-        }
-        if(EA>=0 && EA<=9) {
-            MFR[3]=1;
-            m.data[4] = BinaryToDecimal(PC, 12);
+    void MemStoreFromIndex(int ix, short EA, Memory m){
+        MAR = (short)(EA & addressMask);
+        if(ix != 0) MBR = X[ix];
+        if((EA & WORD_MASK) <= 9) {
+            MFR |= MF_RESERVED_ADDRESS;
+            m.write(4, PC);
             return;
         }
-        m.data[EA] = BinaryToDecimal(MBR,16);
+        MemWrite(m, EA, MBR);
     }
 
     /**
      * Internal Function That Loads the Effective address value in to the specified register
      */
-    private void StoreRegisterEA(char[] rx, short EA){
-        byte RVal= (byte)BinaryToDecimal(rx,2);
-        char[] R_x = getRegister(RVal);
-        DecimalToBinary(EA,MAR,12);
-        ReverseCopyArr(MAR, R_x, 16, 12);
+    void StoreRegisterEA(int rx, short EA){
+        MAR = (short)(EA & addressMask);
+        R[rx] = MAR;
     }
     /** End of StoreRegisterEA **/
-    public void ReverseCopyArr(char[] src, char[] des, int length, int srclen){
-        for(int i=0;i<srclen;i++)
-            des[length-i-1] = src[srclen-i-1];
-    }
+
     /**
      * Reset The Machine state (Useful in Halting)
      */
     public void Reset(Memory m){
-        for(int i=0;i<12;i++){
-            PC[i] = MAR[i] = 0;
-        }
-        for(int i=0;i<4;i++){
-            CC[i] = 0;
-            MFR[i] = 0;
-        }
-        for(int i=0;i<16;i++){
-            IR[i] = 0;
-            MBR[i] = 0;
-            X1[i] = X2[i] = X3[i] = 0;
-            R0[i] = R1[i] = R2[i] = R3[i] = 0;
-        }
-        Arrays.fill(m.data, (short) 0);
-    }
-    /**
-     * Execute the Instructions According to the Memory
-     */
-    public void Execute(Memory m,Devices d){
-        char[] InstOp = new char[6];
-        System.arraycopy(IR, 0, InstOp, 0, 6);
-        char[] RX = new char[2];
-        System.arraycopy(IR, 6, RX, 0, 2);
-        char[] IX = new char[2];
-        System.arraycopy(IR, 8, IX, 0, 2);
-        char I = IR[10];
-        char[] Address = new char[5];
-        System.arraycopy(IR, 11, Address, 0, 5);
-        char[] Count = new char[4];
-        System.arraycopy(IR, 12, Count, 0, 4);
-        short OpCode = BinaryToDecimal(InstOp,6); // Fetch OpCode Value
-        System.out.printf("OpCode: 0x%-2x\n",OpCode);
-        try {
-            dev.printCache(cache);
-        } catch (IOException e) {
-            e.printStackTrace();
-            e.printStackTrace();
-        }
-        short EA=FetchEA(IX,Address,m,I);
+        PC = MAR = MBR = IR = 0;
+        dirty = DIRTY_ALL;
+        CC = MFR = 0;
+        Arrays.fill(R, (short) 0);
+        Arrays.fill(X, (short) 0);
+        m.Reset();
+        decoded.clear();
+        cache.reset();
+        setCycles(0);
+    }
+    /**
+     * Execute the Instruction in IR, fetched from the address in PC
+     */
+    public void Execute(Memory m){
+        execute(decoded.get(PC & WORD_MASK, IR), m);
+    }
+    /**
+     * Execute an instruction that is already decoded, PC still holding its address.
+     * The interpreter switches on the opcode: one call site calling every handler would be
+     * megamorphic. The bound Handler of the instruction is used by the block translator,
+     * where each call site sees only one.
+     */
+    void execute(DecodedInstruction d, Memory m){
+        short OpCode = d.opcode(); // Fetch OpCode Value
+        short rx = d.rx();
+        short ix = d.ix();
+        short Address = d.address();
+        short Count = d.count();
+        if (verbose) System.out.printf("OpCode: 0x%-2x\n",OpCode);
         try{
+            short EA = effectiveAddress(d, m);
             switch(OpCode){
                 case HLT: break;
-                case LDR: StoreRegister(RX,EA,m); break;
-                case STR: MemStore(RX,EA,m); break;
-                case LDA: StoreRegisterEA(RX,EA); break;
-                case LDX: StoreIndexRegister(IX, EA, m); break;
-                case STX: MemStoreFromIndex(IX, EA, m); break;
-                case AMR: fAMR(BinaryToDecimal(RX, 2), EA,m); break;
-                case SMR: fSMR(BinaryToDecimal(RX, 2), EA,m); break;
-                case AIR: fAIR(BinaryToDecimal(RX, 2), BinaryToDecimal(Address, 5)); break;
-                case SIR: fSIR(BinaryToDecimal(RX, 2), BinaryToDecimal(Address, 5)); break;
-                case JZ: JumpZero((BinaryToDecimal(RX, 2)),EA); break;
-                case JNE: JumpIfNotEqual((BinaryToDecimal(RX, 2)),EA); break;
-                case JCC: JumpIfCond(BinaryToDecimal(RX, 2),EA); break;
+                case LDR: StoreRegister(rx,EA,m); break;
+                case STR: MemStore(rx,EA,m); break;
+                case LDA: StoreRegisterEA(rx,EA); break;
+                case LDX: StoreIndexRegister(ix, EA, m); break;
+                case STX: MemStoreFromIndex(ix, EA, m); break;
+                case AMR: fAMR(rx, EA,m); break;
+                case SMR: fSMR(rx, EA,m); break;
+                case AIR: fAIR(rx, Address); break;
+                case SIR: fSIR(rx, Address); break;
+                case JZ: JumpZero(rx,EA); break;
+                case JNE: JumpIfNotEqual(rx,EA); break;
+                case JCC: JumpIfCond(rx,EA); break;
                 case JMA: UncondJump(EA); break;
                 case JSR: JumpSubRoutine(EA); break;
                 case RFS: RFSImmed(Address); break;
-                case SOB: SubandBranch(BinaryToDecimal(RX, 2), EA); break;
-                case JGE: JumpGE(BinaryToDecimal(RX, 2), EA); break;
-                case MLT: fMLT(BinaryToDecimal(RX, 2), BinaryToDecimal(IX, 2)); break;
-                case DVD: fDVD(BinaryToDecimal(RX, 2), BinaryToDecimal(IX, 2)); break;
-                case TRR: fTRR(BinaryToDecimal(RX, 2), BinaryToDecimal(IX, 2)); break;
-                case AND: fAND(BinaryToDecimal(RX, 2), BinaryToDecimal(IX, 2)); break;
-                case ORR: fORR(BinaryToDecimal(RX, 2), BinaryToDecimal(IX, 2)); break;
-                case NOT: fNOT(BinaryToDecimal(RX, 2)); break;
-                case TRAP: fTrap(BinaryToDecimal(Count,4),m); break;
-                case SRC: fSRC(BinaryToDecimal(RX, 2),BinaryToDecimal(Count, 4),(byte)IR[9],(byte)IR[8]); break;
-                case RRC: fRRC(BinaryToDecimal(RX, 2),BinaryToDecimal(Count, 4),(byte)IR[9],(byte)IR[8]); break;
-                case IN: fIN(BinaryToDecimal(RX, 2), (byte)BinaryToDecimal(Address,5), dev); break;
+                case SOB: SubandBranch(rx, EA); break;
+                case JGE: JumpGE(rx, EA); break;
+                case MLT: fMLT(rx, ix); break;
+                case DVD: fDVD(rx, ix); break;
+                case TRR: fTRR(rx, ix); break;
+                case AND: fAND(rx, ix); break;
+                case ORR: fORR(rx, ix); break;
+                case NOT: fNOT(rx); break;
+                case TRAP: fTrap(Count,m); break;
+                case SRC: fSRC(rx,Count,d.lr(),d.al()); break;
+                case RRC: fRRC(rx,Count,d.lr(),d.al()); break;
+                case IN: fIN(rx, (byte)Address, dev); break;
                 case OUT:
-                    fOUT(BinaryToDecimal(RX, 2), (byte)BinaryToDecimal(Address,5), dev); break;
+                    fOUT(rx, (byte)Address, dev); break;
                 case CHK:
-                    fCHK(BinaryToDecimal(RX, 2), (byte)BinaryToDecimal(Address, 5), dev); break;
-                case FADD: FloatAdd(BinaryToDecimal(RX, 2), EA, m); break;
-                case FSUB: FloatSub(BinaryToDecimal(RX, 2), EA, m); break;
-                case VADD: VectorAdd(BinaryToDecimal(RX, 2), EA, m); break;
-                case VSUB: VectorSub(BinaryToDecimal(RX, 2), EA, m); break;
-                case CNVRT: ConvertFloatFixed(BinaryToDecimal(RX, 2), EA, m); break;
-                case LDFR: LoadFloatRegister(BinaryToDecimal(RX, 2), EA, m); break;
-                case STFR: StoreFloatRegister(BinaryToDecimal(RX, 2), EA, m); break;
+                    fCHK(rx, (byte)Address, dev); break;
+                case FADD: FloatAdd(rx, EA, m); break;
+                case FSUB: FloatSub(rx, EA, m); break;
+                case VADD: VectorAdd(rx, EA, m); break;
+                case VSUB: VectorSub(rx, EA, m); break;
+                case CNVRT: ConvertFloatFixed(rx, EA, m); break;
+                case LDFR: LoadFloatRegister(rx, EA, m); break;
+                case STFR: StoreFloatRegister(rx, EA, m); break;
                 default:
-                    MFR[1]=1;
-                    m.data[4] = BinaryToDecimal(PC, 12);
+                    MFR |= MF_ILLEGAL_OPCODE;
+                    m.write(4, PC);
                     break;
             }
         }catch(IndexOutOfBoundsException ioobe){
-            MFR[0]=1;
-            m.data[4] = BinaryToDecimal(PC, 12);
+            addressFault(m);
         }
-        m.data[1] = BinaryToDecimal(MFR, 4);
+        retire(d, m);
+    }
+    /**
+     * Effective address of a decoded instruction, reading memory for indirect addressing
+     */
+    short effectiveAddress(DecodedInstruction d, Memory m){
+        return d.isDirect() ? d.address() : FetchEA(d.ix(), d.address(), m, d.indirect());
+    }
+    /**
+     * Record an access outside the installed memory, including an indirect address word
+     */
+    void addressFault(Memory m){
+        MFR |= MF_ILLEGAL_ADDRESS;
+        jumped = false;
+        m.write(4, PC);
+    }
+    /**
+     * Bookkeeping after every instruction: MFR to memory, changed registers to the dirty mask
+     */
+    void retire(DecodedInstruction d, Memory m){
+        m.write(1, MFR);
+        dirty |= d.writes() | (MFR != 0 ? DIRTY_MFR : 0);
+        cycles += costs.opcodes[d.opcode()];
+    }
+    /**
+     * Simulated clock: the execute cycles of every retired instruction plus the latency of
+     * every cache access since the last reset. Memory latency is priced from the cache
+     * counters when the clock is read, so the per-instruction cost is a single add.
+     */
+    public long cycles(){
+        return cycles + (cache.hits - chargedHits) * costs.hit + (cache.misses - chargedMisses) * costs.miss;
+    }
+    /**
+     * Set the clock, treating every cache access counted so far as already charged.
+     * Needed whenever the cache or its counters are replaced.
+     */
+    public void setCycles(long cycles){
+        this.cycles = cycles;
+        chargedHits = cache.hits;
+        chargedMisses = cache.misses;
+    }
+    public CycleModel costs(){
+        return costs;
+    }
+    /**
+     * Price everything from now on with other costs, keeping the cycles counted so far
+     */
+    public void setCosts(CycleModel costs){
+        setCycles(cycles());
+        this.costs = costs;
     }
     /**
      * Handle Machine Fault
      * @param m Memory fault to handle.
      */
     public void MFHandle(Memory m){
-        if(MFR[0]==1){
-            DecimalToBinary((short)10, PC, 12);
+        if((MFR & MF_ILLEGAL_ADDRESS) != 0){
+            PC = 10;
         }
-        MFR[0] = MFR[1] = MFR[2] = MFR[3] = 0;
-        m.data[4] = BinaryToDecimal(PC, 12);
+        MFR = 0;
+        dirty |= DIRTY_MFR | DIRTY_PC;
+        m.write(4, PC);
+    }
+
+    /**
+     * Advance the PC to the next word
+     */
+    private void NextPC(){
+        jumped = false;
+        PC = (short)((PC + 1) & addressMask);
     }
 
     /**
@@ -464,13 +464,10 @@ public class CPU extends Converter {
      * @param EA Effective Address to PC
      */
     public void JumpZero(short rx,short EA){
-        short val;char[] R_x=getRegister(rx);
-        val = BinaryToDecimal(R_x, 16);
-        if(val==0){
-            DecimalToBinary(EA, PC, 12);
+        if(R[rx]==0){
+            UncondJump(EA);
         }else {
-            DecimalToBinary((short)
-                    (BinaryToDecimal(PC, 12)+1), PC, 12);
+            NextPC();
         }
 
     }
@@ -480,14 +477,10 @@ public class CPU extends Converter {
      * @param EA Effective Address to PC
      */
     public void JumpIfNotEqual(short rx,short EA){
-        short val;
-        char[] R_x = getRegister(rx);
-        val=BinaryToDecimal(R_x, 16);
-        if (val != 0){
-            DecimalToBinary(EA, PC, 12);
+        if (R[rx] != 0){
+            UncondJump(EA);
         } else {
-            DecimalToBinary((short)
-                    (BinaryToDecimal(PC, 12)+1), PC, 12);
+            NextPC();
         }
     }
     /**
@@ -496,42 +489,37 @@ public class CPU extends Converter {
      * @param EA effective Address
      */
     public void JumpIfCond(short cc,short EA){
-        if ( CC[cc] == 1){
-            DecimalToBinary(EA, PC, 12);
-            CC[cc]=0;
+        byte bit = (byte)(CC_OVERFLOW >> cc);
+        if ((CC & bit) != 0){
+            UncondJump(EA);
+            CC &= (byte)~bit;
         } else {
-            DecimalToBinary((short)
-                    (BinaryToDecimal(PC, 12)+1), PC, 12);
+            NextPC();
         }
     }
     /**
      * Unconditional Jump to Address
      */
     public void UncondJump(short EA){
-        DecimalToBinary(EA, PC, 12);
+        jumped = true;
+        PC = (short)(EA & addressMask);
     }
     /* End Implementation of OpCode Method - Natalie Jordan */
     /* Implementation of OpCode Method - AlHassan Halawani */
     public void JumpSubRoutine(short EA){
-        DecimalToBinary(
-                (short)(BinaryToDecimal(PC, 12)+1),
-                R3, 16);
-        DecimalToBinary(EA, PC, 12);
-        DecimalToBinary((short)(EA+1), R0, 16);
+        R[3] = (short)(PC+1);
+        UncondJump(EA);
+        R[0] = (short)(EA+1);
 
     }
-    public void RFSImmed(char[] Addr){
-        ReverseCopyArr(Addr, R0, 16, 5);
-        ReverseCopyArr(R3, PC, 12, 16);
+    public void RFSImmed(short Addr){
+        R[0] = Addr;
+        jumped = true;
+        PC = (short)(R[3] & addressMask);
     }
     public void SubandBranch(short rx,short EA){
-        short val,flag=0;
-        char[] R_x = getRegister(rx);
-        val=BinaryToDecimal(R_x, 16);
-        if(val>0)flag=1;
-        if(flag==1) DecimalToBinary(EA, PC, 12);
-        else DecimalToBinary((short)(BinaryToDecimal(PC, 12)+1),
-                PC, 12);
+        if(R[rx]>0) UncondJump(EA);
+        else NextPC();
     }
     /**
      * Jump Greater than equal to if True
@@ -539,34 +527,23 @@ public class CPU extends Converter {
      * @param EA Effective Address to PC
      */
     public void JumpGE(short rx,short EA){
-        char[] R_x = getRegister(rx);
-        short val=BinaryToDecimal(R_x, 16);
-        if(val>=0){
-            DecimalToBinary(EA, PC, 12);
+        if(R[rx]>=0){
+            UncondJump(EA);
         }else
-            DecimalToBinary((short)(BinaryToDecimal(PC, 12)+1),
-                    PC, 12);
+            NextPC();
     }
 
     public void fAMR(short RVal,short EA, Memory m){
-        char[] R_x = getRegister(RVal);
-        short result = (short)(BinaryToDecimal(R_x, 16) + m.data[EA]);
-        DecimalToBinary(result, R_x, 16);
+        R[RVal] = (short)(R[RVal] + MemRead(m, EA));
     }
     public void fSMR(short RVal,short EA, Memory m){
-        char[] R_x = getRegister(RVal);
-        short result = (short)(BinaryToDecimal(R_x, 16) - m.data[EA]);
-        DecimalToBinary(result, R_x, 16);
+        R[RVal] = (short)(R[RVal] - MemRead(m, EA));
     }
     public void fAIR(short RVal,short Addr){
-        char[] R_x = getRegister(RVal);
-        short result = (short)(BinaryToDecimal(R_x, 16) + Addr);
-        DecimalToBinary(result, R_x, 16);
+        R[RVal] = (short)(R[RVal] + Addr);
     }
     public void fSIR(short RVal,short Addr){
-        char[] R_x = getRegister(RVal);
-        short result = (short)(BinaryToDecimal(R_x, 16) - Addr);
-        DecimalToBinary(result, R_x, 16);
+        R[RVal] = (short)(R[RVal] - Addr);
     }
     /**
      * Vector Addition
@@ -575,13 +552,12 @@ public class CPU extends Converter {
      * @param m access from Memory
      */
     public void VectorAdd(short fx, short EA, Memory m){
-        short v1addr = m.data[EA];
-        short v2addr = m.data[EA+1];
-        System.out.println(v1addr+" "+v2addr);
+        short v1addr = MemRead(m, EA);
+        short v2addr = MemRead(m, EA+1);
         float frVal = FloatingPointRegisters.shortToFloat(GetFloatingRegister(fx));
+        if(frVal > 0) cycles += (long)frVal * costs.vectorElement;
         for(int i=0; i<(int)frVal; i++){
-            m.data[v1addr+i] += m.data[v2addr+i];
-            //System.out.println(m.data[v1addr+i]);
+            MemWrite(m, v1addr+i, (short)(MemRead(m, v1addr+i) + MemRead(m, v2addr+i)));
         }
     }
     /**
@@ -591,74 +567,46 @@ public class CPU extends Converter {
      * @param m access from Memory
      */
     public void VectorSub(short fx, short EA, Memory m){
-        short v1addr = m.data[EA];
-        short v2addr = m.data[EA+1];
+        short v1addr = MemRead(m, EA);
+        short v2addr = MemRead(m, EA+1);
         float frVal = FloatingPointRegisters.shortToFloat(GetFloatingRegister(fx));
+        if(frVal > 0) cycles += (long)Math.ceil(frVal) * costs.vectorElement;
         for(int i=0; i<frVal; i++)
-            m.data[v1addr+i] -= m.data[v2addr+i];
+            MemWrite(m, v1addr+i, (short)(MemRead(m, v1addr+i) - MemRead(m, v2addr+i)));
     }
 
     /**
      * Method for the Multiplication OpCode
-     * @param rx for Which register to use (R0/R2)
+     * @param rx for Which register to use (R0/R2), the product goes to rx+1
      * @param ry for Which register to use (R0/R2)
      */
     public void fMLT(short rx,short ry){
         if( rx%2==1 || ry%2==1) return ;
-        if(rx==0){
-            short result=BinaryToDecimal(R0, 16);
-            if(ry==0) result *= result;
-            else result *= BinaryToDecimal(R2, 16);
-            DecimalToBinary(result, R1, 16);
-        }else if(rx==2){
-            short result = BinaryToDecimal(R2, 16);
-            if(ry==0) result *= BinaryToDecimal(R0, 16);
-            else result *= result;
-            DecimalToBinary(result, R3, 16);
-        }
+        multiply(rx, ry);
+    }
+    /** MLT once the register pair is known to be valid **/
+    void multiply(int rx,int ry){
+        R[rx+1] = (short)(R[rx] * R[ry]);
     }
     /**
      * Method for the Division OpCode
-     * @param rx for Which register to use (R0/R2)
+     * @param rx for Which register to use (R0/R2), the quotient stays in rx and the remainder goes to rx+1
      * @param ry for Which register to use (R0/R2)
      */
     public void fDVD(short rx,short ry){
         if( rx%2==1 || ry%2==1) return ;
-        if(rx==0){
-            short result=BinaryToDecimal(R0, 16);
-            try{
-                short rem=0;
-                if(ry==0) {
-                    rem+= (short) (result % BinaryToDecimal(R0,16));
-                    result /= BinaryToDecimal(R0, 16);
-                }
-                else {
-                    rem+= (short) (result % BinaryToDecimal(R2,16));
-                    result /= BinaryToDecimal(R2, 16);
-                }
-                DecimalToBinary(rem, R1, 16);
-                DecimalToBinary(result, R0, 16);
-            }catch(ArithmeticException E){
-                CC[2]=1;
-            }
-        }else if(rx==2){
-            short result=BinaryToDecimal(R2, 16);
-            try{
-                short rem=0;
-                if(ry==0) {
-                    rem+= (short) (result % BinaryToDecimal(R0,16));
-                    result /= BinaryToDecimal(R0, 16);
-                }
-                else {
-                    rem+= (short) (result % BinaryToDecimal(R2,16));
-                    result /= BinaryToDecimal(R2, 16);
-                }
-                DecimalToBinary(rem, R2, 16);
-                DecimalToBinary(result, R3, 16);
-            }catch(ArithmeticException E){
-                CC[2]=1;
-            }
+        divide(rx, ry);
+    }
+    /** DVD once the register pair is known to be valid **/
+    void divide(int rx,int ry){
+        short divisor = R[ry];
+        if(divisor == 0){
+            CC |= CC_DIVZERO;
+            return;
         }
+        short dividend = R[rx];
+        R[rx] = (short)(dividend / divisor);
+        R[rx+1] = (short)(dividend % divisor);
     }
     /**
      * Method for the Equality OpCode
@@ -666,11 +614,7 @@ public class CPU extends Converter {
      * @param ry for Which register to use (R0/R1/R2/R3)
      */
     public void fTRR(short rx,short ry){
-        char[] R_x=getRegister(rx),
-                R_y=getRegister(ry);
-        short rxValue = BinaryToDecimal(R_x,16);
-        short ryValue = BinaryToDecimal(R_y,16);
-        if(rxValue==ryValue) CC[3]=1;
+        if(R[rx]==R[ry]) CC |= CC_EQUALORNOT;
     }
     /**
      * Method for the AND Operator OpCode
@@ -678,11 +622,7 @@ public class CPU extends Converter {
      * @param ry for Which register to use (R0/R1/R2/R3)
      */
     public void fAND(short rx,short ry){
-        char[] R_x=getRegister(rx),
-                R_y=getRegister(ry);
-        for(int i=0;i<16;i++){
-            R_x[i] = (char)(R_x[i] & R_y[i]);
-        }
+        R[rx] &= R[ry];
     }
     /**
      * Method for the OR Operator OpCode
@@ -690,89 +630,49 @@ public class CPU extends Converter {
      * @param ry for Which register to use (R0/R1/R2/R3)
      */
     public void fORR(short rx,short ry){
-        char[] R_x=getRegister(rx),
-                R_y=getRegister(ry);
-        for(int i=0;i<16;i++){
-            R_x[i] = (char)(R_x[i] | R_y[i]);
-        }
+        R[rx] |= R[ry];
     }
     /**
      * Method for the NOT Operator OpCode
      * @param rx for Which register to use (R0/R1/R2/R3)
      */
     public void fNOT(short rx){
-        char[] R_x=getRegister(rx);
-        for(int i=0;i<16;i++){
-            if(R_x[i] == 0) R_x[i] = 1;
-            else if(R_x[i] == 1) R_x[i] = 0;
-        }
+        R[rx] = (short)~R[rx];
     }
     /**
      * Trap Code Instruction
      * @param trapCode Input the Trap Code
      */
     public void fTrap(short trapCode,Memory m){
-        m.data[0]=trapCode;
-        short Value = (short)(BinaryToDecimal(PC, 12)+1);
-        m.data[2] = Value;
-        //DecimalToBinary(m.data[2], PC, 12);
+        m.write(0, trapCode);
+        short Value = (short)(PC+1);
+        m.write(2, Value);
         // Handle Trap Code here
     }
     /**
      * Shift Register By Count
+     * @param LR 1 for a left shift, 0 for a right shift
+     * @param AL 1 for a logical shift, 0 for an arithmetic shift
      */
     public void fSRC(short rx,short count,byte LR,byte AL){
-        char[] R_x=getRegister(rx);
-        short val = BinaryToDecimal(R_x, 16);
-        if(AL==1){
-            switch(LR){
-                case 0:
-                    val = (short)(val>>count); // Right Shift
-                    DecimalToBinary(val, R_x, 16);
-                    break;
-                case 1:
-                    val = (short)(val<<count); // Left Shift
-                    DecimalToBinary(val, R_x, 16);
-                    break;
-            }
+        int val = R[rx];
+        if(LR==1){
+            val <<= count; // Left Shift
+        }else if(AL==1){
+            val = (val & 0xFFFF) >>> count; // Logical Right Shift
         }else{
-            // Arithmetic Shift
-            switch(LR){
-                case 0:
-                    val = (short)(val>>count); // Right Shift
-                    DecimalToBinary(val, R_x, 16);
-                    R_x[0] = R_x[1];
-                    break;
-                case 1:
-                    val = (short)(val<<count); // Left Shift
-                    DecimalToBinary(val, R_x, 16);
-                    break;
-            }
+            val >>= count; // Arithmetic Right Shift keeps the sign bit
         }
+        R[rx] = (short)val;
     }
     /**
      * Rotate Register by Count
+     * @param LR 1 for a left rotate, 0 for a right rotate
      */
     public void fRRC(short rx,short count,byte LR,byte AL){
-        char[] R_x=getRegister(rx);
-        //short val = BinaryToDecimal(R_x, 16);
-        if(AL==1){
-            switch(LR){
-                case 0:
-                    for(int i=0;i<16;i++){
-                        char temp = R_x[(i+count)%16];
-                        R_x[(i+count)%16] = R_x[i];
-                        R_x[i] = temp;
-                    }
-                    break;
-                case 1:
-                    for(int i=15;i>=0;i++){
-                        char temp = R_x[(i+count)%16];
-                        R_x[(i+count)%16] = R_x[i];
-                        R_x[i] = temp;
-                    }
-            }
-        }
+        int val = R[rx] & 0xFFFF;
+        int shift = (LR==1 ? count : 16 - count) & 0xF;
+        R[rx] = (short)((val << shift) | (val >>> (16 - shift)));
     }
     /**
      * Read from Device to Register
@@ -780,10 +680,9 @@ public class CPU extends Converter {
      * @param devId Device id of the connected Device
      * @param dev Device interface to use for connection
      */
-    public void fIN(short rx,byte devId,Devices dev){
-        char[] Rx = getRegister(rx);
+    public void fIN(short rx,byte devId,IODevice dev){
         if (devId == 0) {
-            dev.keyboard(Rx);
+            R[rx] = dev.keyboard();
         }
     }
     /**
@@ -792,23 +691,21 @@ public class CPU extends Converter {
      * @param deviceId Device id of the connected Device
      * @param dev Device interface to use for connection
      */
-    public void fOUT(short rx,byte deviceId,Devices dev){
-        char[] Rx = getRegister(rx);
+    public void fOUT(short rx,byte deviceId,IODevice dev){
         if (deviceId == 1) {
-            dev.printer(Rx);
+            dev.printer(R[rx]);
         }
     }
     /**
      * CHECK for Device ID Status
      */
-    public void fCHK(short rx,byte deviceId,Devices dev){
-        char[] Rx = getRegister(rx);
+    public void fCHK(short rx,byte deviceId,IODevice dev){
         switch(deviceId){
             case 0:
-                DecimalToBinary((short)dev.printerStatus, Rx, 16);
+                R[rx] = (short)dev.printerStatus();
                 break;
             case 1:
-                DecimalToBinary((short)dev.keyboardStatus(), Rx, deviceId);
+                R[rx] = (short)dev.keyboardStatus();
                 break;
         }
     }
@@ -819,7 +716,7 @@ public class CPU extends Converter {
      * @param m Memory Location to be accessed from for addition
      */
     public void FloatAdd(short fx,short EA,Memory m){
-        float value = FloatingPointRegisters.shortToFloat(m.data[EA]);
+        float value = FloatingPointRegisters.shortToFloat(MemRead(m, EA));
         switch(fx){
             case 0:
                 float fr0 = FR.getFR0() + value;
@@ -838,7 +735,7 @@ public class CPU extends Converter {
      * @param m Memory Location to be accessed from for addition
      */
     public void FloatSub(short fx,short EA,Memory m){
-        float value = FloatingPointRegisters.shortToFloat(m.data[EA]);
+        float value = FloatingPointRegisters.shortToFloat(MemRead(m, EA));
         switch(fx){
             case 0:
                 float fr0 = FR.getFR0() - value;
@@ -857,14 +754,12 @@ public class CPU extends Converter {
      * @param m Access Value stored inside memory m
      */
     public void ConvertFloatFixed(short rx,short EA,Memory m){
-        char[] R_x = getRegister(rx);
-        int F = BinaryToDecimal(R_x, 16);
-        switch(F){
+        switch(R[rx]){
             case 0:
-                DecimalToBinary(m.data[EA], R_x, 16);
+                R[rx] = MemRead(m, EA);
                 break;
             case 1:
-                FR.setFR0(FloatingPointRegisters.shortToFloat(m.data[EA]));
+                FR.setFR0(FloatingPointRegisters.shortToFloat(MemRead(m, EA)));
         }
     }
     /**
@@ -876,12 +771,12 @@ public class CPU extends Converter {
     public void LoadFloatRegister(short fx,short EA,Memory m){
         switch(fx){
             case 0:
-                FR.setFR0(FloatingPointRegisters.shortToFloat(m.data[EA]));
-                FR.setFR1(FloatingPointRegisters.shortToFloat(m.data[EA+1]));
+                FR.setFR0(FloatingPointRegisters.shortToFloat(MemRead(m, EA)));
+                FR.setFR1(FloatingPointRegisters.shortToFloat(MemRead(m, EA+1)));
                 break;
             case 1:
-                FR.setFR0(FloatingPointRegisters.shortToFloat(m.data[EA+1]));
-                FR.setFR1(FloatingPointRegisters.shortToFloat(m.data[EA]));
+                FR.setFR0(FloatingPointRegisters.shortToFloat(MemRead(m, EA+1)));
+                FR.setFR1(FloatingPointRegisters.shortToFloat(MemRead(m, EA)));
                 break;
         }
     }
@@ -894,83 +789,76 @@ public class CPU extends Converter {
     public void StoreFloatRegister(short fx,short EA,Memory m){
         switch(fx){
             case 0:
-                m.data[EA]=FR.FR0;
-                m.data[EA+1]=FR.FR1;
+                MemWrite(m, EA, FR.FR0);
+                MemWrite(m, EA+1, FR.FR1);
                 break;
             case 1:
-                m.data[EA+1]=FR.FR0;
-                m.data[EA]=FR.FR1;
+                MemWrite(m, EA+1, FR.FR0);
+                MemWrite(m, EA, FR.FR1);
                 break;
         }
     }
 
 
     /** Getter and Setter Functions for Debugging and future development only **/
-    public char[] getIR() {
+    public short getIR() {
         return IR;
     }
-    public char[] getMAR(){
+    public short getMAR(){
         return MAR;
     }
-    public void getR0(){
-        for(int i=0;i<16;i++)
-            System.out.printf("%d ",(int)R0[i]);
-        System.out.println();
-    }
-    public char[] getR1() {
-        return R1;
-    }
-    public char[] getR2(){
-        return R2;
+    public short getRegister(int rx){
+        return R[rx];
     }
-    public char[] getR3() {
-        return R3;
+    public short getIndexRegister(int ix){
+        return X[ix];
     }
-    public void setIR(char[] IR){
-        System.arraycopy(IR, 0, this.IR, 0, 16);
+    public void setIR(short IR){
+        this.IR = IR;
     }
     public void setGPR0(short value){
-        DecimalToBinary(value, R0, 16);
+        R[0] = value;
+        dirty |= DIRTY_R0;
     }
-    public void setGPR1(char[] arr, int len){
-        CopyArr(arr,R1,16);
+    public void setGPR1(short value){
+        R[1] = value;
+        dirty |= DIRTY_R1;
     }
-    public void setGPR2(char[] arr, int len){
-        CopyArr(arr,R2,16);
+    public void setGPR2(short value){
+        R[2] = value;
+        dirty |= DIRTY_R2;
     }
-    public void setGPR3(char[] arr, int len){
-        CopyArr(arr,R3,16);
+    public void setGPR3(short value){
+        R[3] = value;
+        dirty |= DIRTY_R3;
     }
-    public void setX1(char[] arr, int len){
-        CopyArr(arr,X1,16);
+    public void setX1(short value){
+        X[1] = value;
+        dirty |= DIRTY_X1;
     }
-    public void setX2(char[] arr, int len){
-        CopyArr(arr,X2,16);
+    public void setX2(short value){
+        X[2] = value;
+        dirty |= DIRTY_X2;
     }
-    public void setX3(char[] arr, int len){
-        CopyArr(arr,X3,16);
+    public void setX3(short value){
+        X[3] = value;
+        dirty |= DIRTY_X3;
     }
     public void setPC(short value){
-        DecimalToBinary(value, PC, 12);
+        PC = (short)(value & addressMask);
+        dirty |= DIRTY_PC;
     }
     public void setMAR(short value){
-        DecimalToBinary(value, MAR, 12);
+        MAR = (short)(value & addressMask);
+        dirty |= DIRTY_MAR;
     }
-    public void setMBR(char[] arr, int len){
-        CopyArr(arr,MBR,16);
+    public void setMBR(short value){
+        MBR = value;
+        dirty |= DIRTY_MBR;
     }
-    public char[] getMBR(){
+    public short getMBR(){
         return MBR;
     }
-    public char[] getRegister(short rx){
-        return switch (rx) {
-            case 0 -> R0;
-            case 1 -> R1;
-            case 2 -> R2;
-            case 3 -> R3;
-            default -> R0;
-        };
-    }
     public short GetFloatingRegister(short fx){
         return switch (fx) {
             case 0 -> FR.FR0;
@@ -978,4 +866,13 @@ public class CPU extends Converter {
             default -> FR.FR0;
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The dirty mask, cleared so the next call only reports later changes
+     */
+    public int takeDirty(){
+        int d = dirty;
+        dirty = 0;
+        return d;
+    }
+}
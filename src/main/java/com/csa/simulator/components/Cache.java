@@ -1,37 +1,365 @@
 package com.csa.simulator.components;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
- * Cache Class - Manages data transfers with the memory using a FIFO replacement policy
+ * Cache Class - Set-associative cache model in front of memory.
+ * Memory stays the backing store (write-through, write-allocate); the cache tracks
+ * which lines are resident so hit, miss and eviction counts reflect the workload.
+ *
+ * Lines live in parallel primitive arrays. A block-to-line hash index makes lookup O(1),
+ * FIFO evicts from a per-set ring head and LRU from a per-set linked list, so insert,
+ * lookup and evict stay constant time however many lines the cache has.
  */
 public class Cache extends Converter{
-    public CacheData[] lines;
-    public int front,rear;
+    /**
+     * Replacement policy used to pick a victim within a full set
+     */
+    public enum Policy { FIFO, LRU, PLRU, RANDOM }
 
+    public final int sets;
+    public final int ways;
+    public final int lineSize;
+    public final Policy policy;
+
+    /** Line i belongs to set i / ways. Block number held by each line, -1 if invalid **/
+    public final int[] blocks;
+    /** Last address and value accessed through each line **/
+    public final short[] keys;
+    public final short[] vals;
+
+    /** Lines filled so far in each set, fills go to the next unused way until the set is full **/
+    private final int[] filled;
+    /** FIFO: next way to evict in each set **/
+    private final int[] head;
+    /** LRU: per-set doubly linked list of ways, most recent first **/
+    private final int[] prev, next, mru, lru;
+    /** PLRU: tree bits, one word per set **/
+    private final int[] plru;
+    /** Open-addressed block -> line index, linear probing, block+1 as key (0 = empty) **/
+    private final int[] indexKeys;
+    private final int[] indexLines;
+    private final int indexMask;
+    private final int lineShift, setMask;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    public long hits, misses, evictions;
+    /** Receives every access when set, null for no tracing **/
+    public CacheTrace trace;
+
+    /**
+     * The original cache: 16 single-word lines, fully associative, FIFO replacement
+     */
     public Cache(){
-        this.front = this.rear = 0;
-        lines = new CacheData[16];
-        for(int i=0;i<16;i++)
-            lines[i] = new CacheData();
+        this(1, 16, 1, Policy.FIFO);
+    }
+
+    /**
+     * @param sets Number of sets (power of two)
+     * @param ways Lines per set (power of two, at most 32, for PLRU)
+     * @param lineSize Words per line (power of two)
+     * @param policy Replacement policy
+     */
+    public Cache(int sets, int ways, int lineSize, Policy policy){
+        if(Integer.bitCount(sets) != 1 || Integer.bitCount(lineSize) != 1 || ways < 1
+                || (policy == Policy.PLRU && (Integer.bitCount(ways) != 1 || ways > 32)))
+            throw new IllegalArgumentException("Sets and line size must be powers of two, and so must ways (up to 32) for PLRU");
+        this.sets = sets;
+        this.ways = ways;
+        this.lineSize = lineSize;
+        this.policy = policy;
+        int n = sets * ways;
+        blocks = new int[n];
+        keys = new short[n];
+        vals = new short[n];
+        filled = new int[sets];
+        head = new int[sets];
+        plru = new int[sets];
+        prev = new int[n];
+        next = new int[n];
+        mru = new int[sets];
+        lru = new int[sets];
+        int capacity = Integer.highestOneBit(Math.max(n, 1) * 2 - 1) * 2; // load factor <= 0.5
+        indexKeys = new int[capacity];
+        indexLines = new int[capacity];
+        indexMask = capacity - 1;
+        lineShift = Integer.numberOfTrailingZeros(lineSize);
+        setMask = sets - 1;
+        reset();
+    }
+
+    /**
+     * @return Total number of lines
+     */
+    public int lineCount(){
+        return blocks.length;
     }
+
+    /**
+     * @return true if line i holds a block
+     */
+    public boolean isValid(int i){
+        return blocks[i] >= 0;
+    }
+
+    /**
+     * Record a read of one memory word
+     * @return true on a hit
+     */
+    public boolean read(int address, short value){
+        return access(address, value, false);
+    }
+
+    /**
+     * Record a write of one memory word (write-through, write-allocate)
+     * @return true on a hit
+     */
+    public boolean write(int address, short value){
+        return access(address, value, true);
+    }
+
+    /**
+     * Record an access, kept for callers of the original FIFO cache
+     */
     public void push(short key,short val){
-        if(this.rear == 16){
-            for(int i=0;i<15;i++){
-                lines[i].key=lines[i+1].key;
-                lines[i].val=lines[i+1].val;
+        access(key & 0xFFFF, val, false);
+    }
+
+    private boolean access(int address, short value, boolean write){
+        int block = address >>> lineShift;
+        int line = find(block);
+        if(line < 0) return miss(block, address, value, write);
+        hits++;
+        if(policy == Policy.LRU) moveToFront(block & setMask, line);
+        else if(policy == Policy.PLRU) touchPlru(block & setMask, line - (block & setMask) * ways);
+        keys[line] = (short)address;
+        vals[line] = value;
+        if(trace != null) trace.record(write, CacheTrace.HIT, address, value, line);
+        return true;
+    }
+
+    /**
+     * Fill a line on a miss, evicting if the set is full. Kept out of access so the hit
+     * path stays small enough for the JIT to inline into its callers.
+     */
+    private boolean miss(int block, int address, short value, boolean write){
+        int set = block & setMask;
+        int line;
+        misses++;
+        int base = set * ways;
+        int way, kind = CacheTrace.MISS;
+        if(filled[set] < ways){
+            way = filled[set]++;
+            if(policy == Policy.LRU) pushFront(set, base + way);
+        }else{
+            way = victim(set);
+            evictions++;
+            kind = CacheTrace.EVICT;
+            remove(blocks[base + way]);
+            if(policy == Policy.LRU) moveToFront(set, base + way);
+        }
+        line = base + way;
+        blocks[line] = block;
+        insert(block, line);
+        keys[line] = (short)address;
+        vals[line] = value;
+        if(policy == Policy.PLRU) touchPlru(set, way);
+        if(trace != null) trace.record(write, kind, address, value, line);
+        return false;
+    }
+
+    /**
+     * Pick the way to evict from a full set
+     */
+    private int victim(int set){
+        switch(policy){
+            case LRU:
+                return lru[set] - set * ways;
+            case PLRU: {
+                // Follow the tree bits away from the recently used half
+                int node = 1, bits = plru[set];
+                while(node < ways)
+                    node = 2 * node + ((bits >>> node) & 1);
+                return node - ways;
+            }
+            case RANDOM: {
+                seed ^= seed << 13;
+                seed ^= seed >>> 7;
+                seed ^= seed << 17;
+                return (int)Long.remainderUnsigned(seed, ways);
+            }
+            default: {
+                int way = head[set];
+                head[set] = way + 1 == ways ? 0 : way + 1;
+                return way;
             }
-            lines[15].key = key;
-            lines[15].val = val;
-            return ;
         }
-        if(rear==0){
-            lines[rear].key=key;
-            lines[rear].val=val;
-            rear++;
-        }else{
-            lines[rear].key = key;
-            lines[rear].val = val;
-            rear++;
+    }
+
+    /**
+     * Point every tree node on the path to this way at the other half
+     */
+    private void touchPlru(int set, int way){
+        int node = way + ways;
+        int bits = plru[set];
+        while(node > 1){
+            int parent = node >>> 1;
+            if((node & 1) == 0) bits |= 1 << parent;
+            else bits &= ~(1 << parent);
+            node = parent;
         }
+        plru[set] = bits;
+    }
+
+    /** LRU list: link a new line in as most recently used **/
+    private void pushFront(int set, int line){
+        int first = mru[set];
+        prev[line] = -1;
+        next[line] = first;
+        if(first >= 0) prev[first] = line;
+        else lru[set] = line;
+        mru[set] = line;
+    }
+
+    /** LRU list: move an existing line to most recently used **/
+    private void moveToFront(int set, int line){
+        if(mru[set] == line) return;
+        int p = prev[line], n = next[line];
+        next[p] = n;
+        if(n >= 0) prev[n] = p;
+        else lru[set] = p;
+        pushFront(set, line);
+    }
+
+    private static int hash(int block){
+        return block * 0x9E3779B1;
+    }
+
+    /** Index lookup, returns the line holding the block or -1 **/
+    private int find(int block){
+        int key = block + 1;
+        for(int i = hash(block) & indexMask; ; i = (i + 1) & indexMask){
+            int k = indexKeys[i];
+            if(k == key) return indexLines[i];
+            if(k == 0) return -1;
+        }
+    }
+
+    private void insert(int block, int line){
+        int i = hash(block) & indexMask;
+        while(indexKeys[i] != 0) i = (i + 1) & indexMask;
+        indexKeys[i] = block + 1;
+        indexLines[i] = line;
+    }
+
+    /** Remove a block from the index, shifting later entries back so probing never needs tombstones **/
+    private void remove(int block){
+        int key = block + 1;
+        int i = hash(block) & indexMask;
+        while(indexKeys[i] != key) i = (i + 1) & indexMask;
+        for(int j = (i + 1) & indexMask; indexKeys[j] != 0; j = (j + 1) & indexMask){
+            int home = hash(indexKeys[j] - 1) & indexMask;
+            // Move entry j into the hole at i if its home slot is not in (i, j]
+            if(((j - home) & indexMask) >= ((j - i) & indexMask)){
+                indexKeys[i] = indexKeys[j];
+                indexLines[i] = indexLines[j];
+                i = j;
+            }
+        }
+        indexKeys[i] = 0;
+    }
+
+    /**
+     * @return Hits divided by accesses, 0 before the first access
+     */
+    public double hitRatio(){
+        long accesses = hits + misses;
+        return accesses == 0 ? 0 : (double)hits / accesses;
+    }
+
+    /**
+     * Invalidate every line and clear the counters
+     */
+    public void reset(){
+        Arrays.fill(blocks, -1);
+        Arrays.fill(keys, (short)0);
+        Arrays.fill(vals, (short)0);
+        Arrays.fill(filled, 0);
+        Arrays.fill(head, 0);
+        Arrays.fill(plru, 0);
+        Arrays.fill(mru, -1);
+        Arrays.fill(lru, -1);
+        Arrays.fill(indexKeys, 0);
+        hits = misses = evictions = 0;
+    }
+
+    /**
+     * Copy lines, replacement state and counters from a cache with the same geometry.
+     * The trace is not copied.
+     */
+    public void copyFrom(Cache other){
+        if(!sameGeometry(other))
+            throw new IllegalArgumentException("Cache geometry differs");
+        int[][] from = other.intState(), to = intState();
+        for(int i=0;i<to.length;i++)
+            System.arraycopy(from[i], 0, to[i], 0, to[i].length);
+        System.arraycopy(other.keys, 0, keys, 0, keys.length);
+        System.arraycopy(other.vals, 0, vals, 0, vals.length);
+        seed = other.seed;
+        hits = other.hits;
+        misses = other.misses;
+        evictions = other.evictions;
+    }
+
+    /**
+     * @return A new cache with the same geometry and contents, without a trace
+     */
+    public Cache copy(){
+        Cache c = new Cache(sets, ways, lineSize, policy);
+        c.copyFrom(this);
+        return c;
+    }
+
+    public boolean sameGeometry(Cache other){
+        return sets == other.sets && ways == other.ways && lineSize == other.lineSize && policy == other.policy;
+    }
+
+    private int[][] intState(){
+        return new int[][]{ blocks, filled, head, prev, next, mru, lru, plru, indexKeys, indexLines };
+    }
+
+    /**
+     * Bytes written by writeState, geometry excluded
+     */
+    int stateBytes(){
+        int ints = 0;
+        for(int[] a : intState()) ints += a.length;
+        return ints * 4 + (keys.length + vals.length) * 2 + 4 * 8;
+    }
+
+    /**
+     * Write lines, replacement state and counters, for checkpoints
+     */
+    void writeState(ByteBuffer b){
+        for(int[] a : intState())
+            for(int v : a) b.putInt(v);
+        for(short v : keys) b.putShort(v);
+        for(short v : vals) b.putShort(v);
+        b.putLong(seed).putLong(hits).putLong(misses).putLong(evictions);
+    }
+
+    /**
+     * Read the state written by writeState into a cache of the same geometry
+     */
+    void readState(ByteBuffer b){
+        for(int[] a : intState())
+            for(int i=0;i<a.length;i++) a[i] = b.getInt();
+        for(int i=0;i<keys.length;i++) keys[i] = b.getShort();
+        for(int i=0;i<vals.length;i++) vals[i] = b.getShort();
+        seed = b.getLong();
+        hits = b.getLong();
+        misses = b.getLong();
+        evictions = b.getLong();
     }
 }
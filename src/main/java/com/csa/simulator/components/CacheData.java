@@ -1,10 +0,0 @@
-package com.csa.simulator.components;
-
-public class CacheData {
-    public short key;
-    public short val;
-    public CacheData() {
-        this.key = 0;
-        this.val = 0;
-    }
-}
@@ -0,0 +1,206 @@
+package com.csa.simulator.components;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CacheTrace Class - Streams cache events to a trace file from a background thread.
+ * The simulator thread only packs each event into a long and drops it into a bounded
+ * single-producer ring; a daemon writer drains the ring in batches, formats one
+ * compact line per event and rotates the file once it grows past a size limit.
+ * Events arriving while the ring is full are counted and dropped so the CPU never waits.
+ *
+ * Line format: {@code <R|W><h|m|e> <address> <value> <line>}, address and value in hex,
+ * where h is a hit, m a miss filling an empty line and e a miss that evicted a line.
+ */
+public class CacheTrace implements Closeable {
+    /**
+     * Which events are recorded, each level includes the ones after it
+     */
+    public enum Level { ALL, MISSES, EVICTIONS, OFF }
+
+    static final int HIT = 0, MISS = 1, EVICT = 2;
+    private static final int BATCH = 4096;
+    private static final long IDLE_NANOS = 1_000_000;
+
+    private final long[] ring;
+    private final int mask;
+    /** Next slot the simulator writes, only advanced by the producer **/
+    private volatile long head;
+    /** Next slot the writer reads, only advanced by the writer thread **/
+    private volatile long tail;
+
+    private final Path file;
+    private final long maxBytes;
+    private final int keep;
+    private BufferedWriter out;
+    private long bytes;
+    private final StringBuilder line = new StringBuilder(24);
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+
+    private volatile int minKind;
+    private int sampleEvery = 1, sampleCount;
+    /** Events dropped because the ring was full **/
+    public volatile long dropped;
+
+    /**
+     * Trace to a file with a 64K-event ring, rotating at 16 MB and keeping 3 old files
+     */
+    public CacheTrace(Path file) throws IOException {
+        this(file, 1 << 16, 16L << 20, 3);
+    }
+
+    /**
+     * @param file Trace file, appended to if it exists
+     * @param capacity Ring size in events (power of two)
+     * @param maxBytes Size at which the file is rotated to file.1, file.2, ...
+     * @param keep Number of rotated files to keep
+     */
+    public CacheTrace(Path file, int capacity, long maxBytes, int keep) throws IOException {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        this.ring = new long[capacity];
+        this.mask = capacity - 1;
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+        open();
+        writer = new Thread(this::drain, "cache-trace");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Set which events are recorded
+     */
+    public void setLevel(Level level) {
+        minKind = level.ordinal();
+    }
+
+    /**
+     * Record only every n-th event that passes the level filter
+     */
+    public void setSampleEvery(int n) {
+        if (n < 1) throw new IllegalArgumentException("Sample interval must be at least 1");
+        sampleEvery = n;
+        sampleCount = 0;
+    }
+
+    /**
+     * Queue one cache event, called on the simulator thread
+     */
+    void record(boolean write, int kind, int address, short value, int lineIndex) {
+        if (kind < minKind) return;
+        if (sampleEvery > 1 && ++sampleCount < sampleEvery) return;
+        sampleCount = 0;
+        long h = head;
+        if (h - tail >= ring.length) {
+            dropped++;
+            return;
+        }
+        ring[(int) h & mask] = (write ? 1L << 50 : 0) | (long) kind << 48
+                | (long) (lineIndex & 0xFFFF) << 32 | (long) (address & 0xFFFF) << 16 | (value & 0xFFFF);
+        head = h + 1;
+    }
+
+    /**
+     * Writer thread: drain the ring in batches, flush whenever it runs dry
+     */
+    private void drain() {
+        try {
+            while (running || tail != head) {
+                long t = tail, h = head;
+                if (t == h) {
+                    out.flush();
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                long end = Math.min(h, t + BATCH);
+                for (; t < end; t++)
+                    write(ring[(int) t & mask]);
+                tail = end;
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void write(long e) throws IOException {
+        line.setLength(0);
+        line.append((e >>> 50 & 1) == 1 ? 'W' : 'R');
+        line.append("hme".charAt((int) (e >>> 48 & 3)));
+        line.append(' ');
+        appendHex(line, (int) (e >>> 16 & 0xFFFF));
+        line.append(' ');
+        appendHex(line, (int) (e & 0xFFFF));
+        line.append(' ').append(e >>> 32 & 0xFFFF).append('\n');
+        out.append(line);
+        bytes += line.length();
+        if (bytes >= maxBytes) rotate();
+    }
+
+    private static void appendHex(StringBuilder b, int word) {
+        for (int k = 12; k >= 0; k -= 4)
+            b.append(Character.forDigit(word >>> k & 0xF, 16));
+    }
+
+    private void open() throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        bytes = Files.size(file);
+    }
+
+    /**
+     * Shift file.1 .. file.(keep-1) up by one, move the live file to file.1 and start a new one
+     */
+    private void rotate() throws IOException {
+        out.close();
+        if (keep > 0) {
+            for (int i = keep - 1; i >= 1; i--) {
+                Path from = rotated(i);
+                if (Files.exists(from))
+                    Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else
+            Files.delete(file);
+        open();
+    }
+
+    private Path rotated(int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+
+    /**
+     * Stop the writer after it has written every queued event
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * @return The error that stopped the writer, or null
+     */
+    public IOException failure() {
+        return failure;
+    }
+}
@@ -0,0 +1,228 @@
+package com.csa.simulator.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Checkpoint Class - Snapshot of a machine's CPU registers, floating point registers,
+ * simulated clock, cache and memory, restorable any number of times.
+ * Only memory pages holding non-zero words are kept, so a snapshot of the default
+ * machine is a few pages and restoring it is a handful of array copies.
+ * Device state (keyboard buffer, printer output) is not part of the snapshot.
+ *
+ * Binary layout, big-endian: length, magic, version, memory geometry, registers,
+ * cycle count, cache geometry and state, then (page index, 256 words) for each stored page.
+ */
+public final class Checkpoint {
+    private static final int MAGIC = 0x43534143; // "CSAC"
+    private static final short VERSION = 1;
+    private static final int REGISTERS = 13;
+    /** Magic, version, memory geometry, registers, clock and cache geometry **/
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 1 + (REGISTERS + 2) * 2 + 8 + 3 * 4 + 1;
+    private static final int PAGE_BYTES = 4 + Memory.PAGE_SIZE * 2;
+
+    private final int memorySize;
+    private final int addressBits;
+    /** PC, IR, MAR, MBR, CC, MFR, R0-R3, X1-X3, then FR0 and FR1 **/
+    private final short[] registers = new short[REGISTERS + 2];
+    private long cycles;
+    private final Cache cache;
+    private final int[] pageIndexes;
+    private final short[][] pages;
+
+    private Checkpoint(int memorySize, int addressBits, Cache cache, int[] pageIndexes, short[][] pages) {
+        this.memorySize = memorySize;
+        this.addressBits = addressBits;
+        this.cache = cache;
+        this.pageIndexes = pageIndexes;
+        this.pages = pages;
+    }
+
+    /**
+     * Snapshot the current state of a machine
+     */
+    public static Checkpoint capture(Machine machine) {
+        Memory memory = machine.memory;
+        int[] indexes = new int[memory.allocatedPages()];
+        int count = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            int index = memory.allocatedPage(i);
+            if (!isZero(memory.page(index))) indexes[count++] = index;
+        }
+        indexes = Arrays.copyOf(indexes, count);
+        Arrays.sort(indexes);
+        short[][] pages = new short[count][];
+        for (int i = 0; i < count; i++)
+            pages[i] = memory.page(indexes[i]).clone();
+
+        CPU cpu = machine.cpu;
+        Checkpoint c = new Checkpoint(memory.size, memory.addressBits, cpu.cache.copy(), indexes, pages);
+        short[] r = c.registers;
+        r[0] = cpu.PC;
+        r[1] = cpu.IR;
+        r[2] = cpu.MAR;
+        r[3] = cpu.MBR;
+        r[4] = cpu.CC;
+        r[5] = cpu.MFR;
+        System.arraycopy(cpu.R, 0, r, 6, 4);
+        System.arraycopy(cpu.X, 1, r, 10, 3);
+        r[REGISTERS] = cpu.FR.FR0;
+        r[REGISTERS + 1] = cpu.FR.FR1;
+        c.cycles = cpu.cycles();
+        return c;
+    }
+
+    private static boolean isZero(short[] page) {
+        for (short w : page)
+            if (w != 0) return false;
+        return true;
+    }
+
+    /**
+     * Put a machine back into the captured state. Its memory must have the same size and
+     * address width; a cache with different geometry is replaced by a copy of the captured one.
+     * The machine is left not halted, with every register marked dirty for the display.
+     */
+    public void restore(Machine machine) {
+        Memory memory = machine.memory;
+        if (memory.size != memorySize || memory.addressBits != addressBits)
+            throw new IllegalArgumentException("Checkpoint was taken from a " + memorySize + " word, "
+                    + addressBits + " bit memory");
+        memory.Reset();
+        for (int i = 0; i < pageIndexes.length; i++)
+            memory.loadPage(pageIndexes[i], pages[i]);
+
+        CPU cpu = machine.cpu;
+        short[] r = registers;
+        cpu.PC = r[0];
+        cpu.IR = r[1];
+        cpu.MAR = r[2];
+        cpu.MBR = r[3];
+        cpu.CC = (byte) r[4];
+        cpu.MFR = (byte) r[5];
+        System.arraycopy(r, 6, cpu.R, 0, 4);
+        System.arraycopy(r, 10, cpu.X, 1, 3);
+        cpu.FR.FR0 = r[REGISTERS];
+        cpu.FR.FR1 = r[REGISTERS + 1];
+        if (cpu.cache.sameGeometry(cache)) {
+            cpu.cache.copyFrom(cache);
+        } else {
+            CacheTrace trace = cpu.cache.trace;
+            cpu.cache = cache.copy();
+            cpu.cache.trace = trace;
+        }
+        cpu.setCycles(cycles);
+        cpu.decoded.clear();
+        cpu.dirty = CPU.DIRTY_ALL;
+        machine.halted = false;
+    }
+
+    /**
+     * @return Size of the binary form in bytes
+     */
+    public int byteSize() {
+        return 4 + HEADER_BYTES + cache.stateBytes() + 4 + pages.length * PAGE_BYTES;
+    }
+
+    /**
+     * Write the binary form to a channel
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(byteSize());
+        b.putInt(byteSize() - 4).putInt(MAGIC).putShort(VERSION);
+        b.putInt(memorySize).put((byte) addressBits);
+        for (short v : registers) b.putShort(v);
+        b.putLong(cycles);
+        b.putInt(cache.sets).putInt(cache.ways).putInt(cache.lineSize).put((byte) cache.policy.ordinal());
+        cache.writeState(b);
+        b.putInt(pages.length);
+        for (int i = 0; i < pages.length; i++) {
+            b.putInt(pageIndexes[i]);
+            b.asShortBuffer().put(pages[i]);
+            b.position(b.position() + Memory.PAGE_SIZE * 2);
+        }
+        b.flip();
+        while (b.hasRemaining()) channel.write(b);
+    }
+
+    /**
+     * Read a checkpoint written by write. The memory and cache geometry are checked before
+     * anything sized by them is allocated: at most 2^16 words, and no more cache lines than words.
+     * @throws IOException if the stream ends early or is not a valid checkpoint
+     */
+    public static Checkpoint read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer b = readFully(channel, ByteBuffer.allocate(4 + HEADER_BYTES));
+        int length = b.getInt();
+        try {
+            if (b.getInt() != MAGIC) throw new IOException("Not a checkpoint");
+            short version = b.getShort();
+            if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+            int memorySize = b.getInt();
+            int addressBits = b.get();
+            if (addressBits < 1 || addressBits > Memory.MAX_ADDRESS_BITS || memorySize < 1 || memorySize > 1 << addressBits)
+                throw new IOException("Bad memory geometry: " + memorySize + " words, " + addressBits + " bit addresses");
+            short[] registers = new short[REGISTERS + 2];
+            for (int i = 0; i < registers.length; i++) registers[i] = b.getShort();
+            long cycles = b.getLong();
+            int sets = b.getInt(), ways = b.getInt(), lineSize = b.getInt(), policy = b.get();
+            if (sets < 1 || ways < 1 || lineSize < 1 || (long) sets * ways > memorySize || lineSize > memorySize
+                    || policy < 0 || policy >= Cache.Policy.values().length)
+                throw new IOException("Bad cache geometry: " + sets + " sets, " + ways + " ways, " + lineSize
+                        + " word lines, policy " + policy);
+            Cache cache = new Cache(sets, ways, lineSize, Cache.Policy.values()[policy]);
+            b = readFully(channel, ByteBuffer.allocate(cache.stateBytes() + 4));
+            cache.readState(b);
+            int count = b.getInt();
+            int maxPage = (memorySize + Memory.PAGE_SIZE - 1) / Memory.PAGE_SIZE;
+            if (count < 0 || count > maxPage) throw new IOException("Bad page count " + count);
+            if (length != HEADER_BYTES + b.capacity() + count * PAGE_BYTES)
+                throw new IOException("Bad checkpoint length " + length);
+            b = readFully(channel, ByteBuffer.allocate(count * PAGE_BYTES));
+            int[] indexes = new int[count];
+            short[][] pages = new short[count][Memory.PAGE_SIZE];
+            for (int i = 0; i < count; i++) {
+                indexes[i] = b.getInt();
+                if (indexes[i] < 0 || indexes[i] >= maxPage) throw new IOException("Bad page index " + indexes[i]);
+                b.asShortBuffer().get(pages[i]);
+                b.position(b.position() + Memory.PAGE_SIZE * 2);
+            }
+            Checkpoint c = new Checkpoint(memorySize, addressBits, cache, indexes, pages);
+            System.arraycopy(registers, 0, c.registers, 0, registers.length);
+            c.cycles = cycles;
+            return c;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt checkpoint", e);
+        }
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer b) throws IOException {
+        while (b.hasRemaining())
+            if (channel.read(b) < 0) throw new IOException("Checkpoint truncated");
+        return b.flip();
+    }
+
+    /**
+     * Write the checkpoint to a file, replacing it
+     */
+    public void save(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(ch);
+        }
+    }
+
+    /**
+     * Read a checkpoint from a file
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(ch);
+        }
+    }
+}
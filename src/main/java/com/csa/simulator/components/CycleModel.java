@@ -0,0 +1,116 @@
+package com.csa.simulator.components;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * CycleModel Class - Cycle costs that drive the simulated clock, CPU.cycles().
+ * Every retired instruction is charged its opcode's execute cost plus a latency for each
+ * cache access it made (the instruction fetch, operand reads and writes, indirect address
+ * words), hits and misses priced separately. VADD and VSUB add a cost per element.
+ *
+ * Costs are read from properties: a mnemonic (LDR, AIR, ...) for the execute cost of one
+ * instruction, "default" for every instruction the same file does not list, cache.hit,
+ * cache.miss and vector.element. The built-in values are in cycles.properties; a file
+ * passed to load only needs the keys it changes.
+ * Models are immutable, so one instance can be shared by many machines.
+ */
+public final class CycleModel {
+    private static final String RESOURCE = "/cycles.properties";
+    private static final CycleModel DEFAULTS;
+
+    static {
+        Properties p = new Properties();
+        try (InputStream in = CycleModel.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) p.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        DEFAULTS = new CycleModel(null, p);
+    }
+
+    /** Execute cycles per opcode **/
+    final int[] opcodes = new int[64];
+    final int hit, miss, vectorElement;
+
+    private CycleModel(CycleModel base, Properties p) {
+        if (p.containsKey("default")) Arrays.fill(opcodes, number(p, "default"));
+        else if (base != null) System.arraycopy(base.opcodes, 0, opcodes, 0, opcodes.length);
+        else Arrays.fill(opcodes, 1);
+        for (String key : p.stringPropertyNames()) {
+            if (key.equals("default") || key.equals("cache.hit") || key.equals("cache.miss")
+                    || key.equals("vector.element")) continue;
+            int opcode = Assembler.opcode(key);
+            if (opcode < 0) throw new IllegalArgumentException("Unknown cycle cost " + key);
+            opcodes[opcode] = number(p, key);
+        }
+        hit = p.containsKey("cache.hit") ? number(p, "cache.hit") : base == null ? 0 : base.hit;
+        miss = p.containsKey("cache.miss") ? number(p, "cache.miss") : base == null ? 0 : base.miss;
+        vectorElement = p.containsKey("vector.element") ? number(p, "vector.element")
+                : base == null ? 0 : base.vectorElement;
+    }
+
+    private static int number(Properties p, String key) {
+        String value = p.getProperty(key).trim();
+        try {
+            int n = Integer.parseInt(value);
+            if (n < 0) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad cycle count for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * @return The built-in costs from cycles.properties
+     */
+    public static CycleModel defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * The built-in costs with the ones set in a properties file replaced
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException for an unknown key or a bad number
+     */
+    public static CycleModel load(Path file) throws IOException {
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            p.load(r);
+        }
+        return from(p);
+    }
+
+    /**
+     * The built-in costs with the given ones replaced
+     */
+    public static CycleModel from(Properties p) {
+        return new CycleModel(DEFAULTS, p);
+    }
+
+    /**
+     * @return Execute cycles of an opcode, memory accesses excluded
+     */
+    public int cost(int opcode) {
+        return opcodes[opcode];
+    }
+
+    public int hitCycles() {
+        return hit;
+    }
+
+    public int missCycles() {
+        return miss;
+    }
+
+    public int vectorElementCycles() {
+        return vectorElement;
+    }
+}
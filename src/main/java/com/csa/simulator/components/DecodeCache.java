@@ -0,0 +1,86 @@
+package com.csa.simulator.components;
+
+import java.util.Arrays;
+
+/**
+ * DecodeCache Class - Pre-decoded instructions keyed by memory address.
+ * Stores into memory invalidate the matching entry so self-modifying code
+ * is decoded again; an entry is also only used if its word still matches IR.
+ * Entries are held in pages matching Memory, allocated when code first runs there.
+ * Invalidations are passed on to the block translator, if one is attached.
+ */
+public class DecodeCache {
+    private static final int PAGE_BITS = Memory.PAGE_BITS;
+    private static final int PAGE_MASK = Memory.PAGE_SIZE - 1;
+
+    private final DecodedInstruction[][] pages;
+    private final int size;
+    /** Told about every invalidation so translated blocks over rewritten code are dropped, may be null **/
+    BlockTranslator translator;
+
+    /**
+     * @param size Number of memory words covered
+     */
+    public DecodeCache(int size) {
+        this.size = size;
+        pages = new DecodedInstruction[(size + PAGE_MASK) >>> PAGE_BITS][];
+    }
+
+    /**
+     * Decoded form of the word fetched from the address, decoding it on a miss
+     * @param address Address the word was fetched from
+     * @param word Instruction word
+     */
+    public DecodedInstruction get(int address, short word) {
+        if (address < 0 || address >= size) {
+            return DecodedInstruction.decode(word);
+        }
+        DecodedInstruction[] page = pages[address >>> PAGE_BITS];
+        if (page == null) {
+            page = new DecodedInstruction[Memory.PAGE_SIZE];
+            pages[address >>> PAGE_BITS] = page;
+        }
+        DecodedInstruction d = page[address & PAGE_MASK];
+        if (d == null || d.word() != word) {
+            d = DecodedInstruction.decode(word);
+            page[address & PAGE_MASK] = d;
+        }
+        return d;
+    }
+
+    /**
+     * Drop the entry for a memory word that was written
+     */
+    public void invalidate(int address) {
+        if (address >= 0 && address < size) {
+            DecodedInstruction[] page = pages[address >>> PAGE_BITS];
+            if (page != null) page[address & PAGE_MASK] = null;
+            if (translator != null) translator.invalidate(address);
+        }
+    }
+
+    /**
+     * Drop the entries for a range of memory words that were written
+     * @param from First address
+     * @param length Number of words
+     */
+    public void invalidate(int from, int length) {
+        int to = (int) Math.min((long) from + length, size);
+        from = Math.max(from, 0);
+        if (translator != null) translator.invalidate(from, to - from);
+        while (from < to) {
+            int end = Math.min(to, (from | PAGE_MASK) + 1);
+            DecodedInstruction[] page = pages[from >>> PAGE_BITS];
+            if (page != null) Arrays.fill(page, from & PAGE_MASK, ((end - 1) & PAGE_MASK) + 1, null);
+            from = end;
+        }
+    }
+
+    /**
+     * Drop every entry (after a reset or a program load)
+     */
+    public void clear() {
+        Arrays.fill(pages, null);
+        if (translator != null) translator.clear();
+    }
+}
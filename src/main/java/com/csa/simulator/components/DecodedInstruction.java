@@ -0,0 +1,90 @@
+package com.csa.simulator.components;
+
+/**
+ * DecodedInstruction Record - The fields of one instruction word, sliced out once
+ * and reused every time the same word is executed from the same address.
+ *
+ * @param word     Instruction word the record was decoded from
+ * @param opcode   Opcode, selects the handler in the Handlers table
+ * @param rx       General purpose register field (also the FR / CC selector)
+ * @param ix       Index register field (also ry for register to register ops)
+ * @param indirect true if the I bit is set
+ * @param address  5 bit address / immediate / device id field
+ * @param count    4 bit shift count / trap code field
+ * @param lr       Left (1) or right (0) for shifts and rotates
+ * @param al       Logical (1) or arithmetic (0) for shifts
+ * @param writes   CPU.DIRTY_* bits of the displayed registers the instruction can change
+ * @param reads    CPU.DIRTY_* bits of the R and X registers the instruction reads
+ * @param handler  Work of the instruction, with its operands bound in
+ */
+public record DecodedInstruction(short word, short opcode, short rx, short ix, boolean indirect,
+                                 short address, short count, byte lr, byte al, int writes,
+                                 int reads, Handler handler) {
+
+    /**
+     * Slice an instruction word into its fields
+     * @param word Instruction word
+     */
+    public static DecodedInstruction decode(short word) {
+        int ir = word & 0xFFFF;
+        int opcode = ir >>> 10, rx = (ir >>> 8) & 0x3, ix = (ir >>> 6) & 0x3;
+        int address = ir & 0x1F, count = ir & 0xF, lr = (ir >>> 6) & 0x1, al = (ir >>> 7) & 0x1;
+        return new DecodedInstruction(word,
+                (short) opcode,
+                (short) rx,
+                (short) ix,
+                ((ir >>> 5) & 0x1) == 1,
+                (short) address,
+                (short) count,
+                (byte) lr,
+                (byte) al,
+                writes(opcode, rx, ix),
+                reads(opcode, rx, ix),
+                Handlers.forInstruction(opcode, rx, ix, address, count, lr, al));
+    }
+
+    /**
+     * Registers shown on the front panel that an instruction can write, always including PC and IR
+     */
+    static int writes(int opcode, int rx, int ix) {
+        int r = CPU.DIRTY_R0 << rx;
+        int mask = switch (opcode) {
+            case CPU.LDR -> r | CPU.DIRTY_MAR | CPU.DIRTY_MBR;
+            case CPU.STR, CPU.STX -> CPU.DIRTY_MAR | CPU.DIRTY_MBR;
+            case CPU.LDA -> r | CPU.DIRTY_MAR;
+            case CPU.LDX -> (ix == 0 ? 0 : CPU.DIRTY_X1 << (ix - 1)) | CPU.DIRTY_MAR | CPU.DIRTY_MBR;
+            case CPU.JSR -> CPU.DIRTY_R0 | CPU.DIRTY_R3;
+            case CPU.RFS -> CPU.DIRTY_R0;
+            case CPU.MLT, CPU.DVD -> r | r << 1;
+            case CPU.AMR, CPU.SMR, CPU.AIR, CPU.SIR, CPU.AND, CPU.ORR, CPU.NOT,
+                 CPU.SRC, CPU.RRC, CPU.IN, CPU.CHK, CPU.CNVRT -> r;
+            default -> 0;
+        };
+        return (mask | CPU.DIRTY_PC | CPU.DIRTY_IR) & CPU.DIRTY_ALL;
+    }
+
+    /**
+     * General purpose and index registers an instruction reads, including the index register
+     * of a memory reference (X0 reads as 0 and is not included)
+     */
+    static int reads(int opcode, int rx, int ix) {
+        int r = CPU.DIRTY_R0 << rx;
+        int x = ix == 0 ? 0 : CPU.DIRTY_X1 << (ix - 1);
+        return switch (opcode) {
+            case CPU.LDR, CPU.LDA, CPU.LDX, CPU.STX, CPU.JCC, CPU.JMA, CPU.JSR,
+                 CPU.FADD, CPU.FSUB, CPU.VADD, CPU.VSUB, CPU.LDFR, CPU.STFR -> x;
+            case CPU.STR, CPU.AMR, CPU.SMR, CPU.JZ, CPU.JNE, CPU.SOB, CPU.JGE, CPU.CNVRT -> r | x;
+            case CPU.AIR, CPU.SIR, CPU.NOT, CPU.SRC, CPU.RRC, CPU.OUT -> r;
+            case CPU.MLT, CPU.DVD, CPU.TRR, CPU.AND, CPU.ORR -> r | CPU.DIRTY_R0 << ix;
+            case CPU.RFS -> CPU.DIRTY_R3;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return true if the effective address is just the address field (no index, no indirection)
+     */
+    public boolean isDirect() {
+        return ix == 0 && !indirect;
+    }
+}
@@ -3,28 +3,24 @@ package com.csa.simulator.components;
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.util.ArrayList;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 
 /**
  *  This file contains instructions for printing and connecting to input and output devices while the simulator is operating.
  */
 
-public class Devices extends JFrame{
+public class Devices extends JFrame implements IODevice{
     private final JTextArea ConsoleOut;
     private final JTextArea ConsoleIn;
     private final JTextArea CacheOutput;
-    char[] cacheAdder, cacheValue;
     public int printerStatus=0; // check for console printer : 0 if unused, 1 if used
     public Devices(){
         super("Console");
         this.setSize(960,480);
         this.setLayout(null);
 
-        cacheAdder =new char[16];
-        cacheValue =new char[16];
         ArrayList<JPanel> panel = new ArrayList<JPanel>();
         panel.add(new JPanel());
         panel.add(new JPanel());
@@ -75,64 +71,59 @@ public class Devices extends JFrame{
     }
 
     public int boardStatus =0;
+    /**
+     * Called from the run thread, so the keyboard is read through its Document,
+     * which locks internally, rather than through the text area
+     */
+    @Override
     public int keyboardStatus(){
-        if(!ConsoleIn.getText().isEmpty()) boardStatus =1; //Text in Keyboard
+        if(ConsoleIn.getDocument().getLength() > 0) boardStatus =1; //Text in Keyboard
         else boardStatus =0; // Empty to Use.
         return boardStatus;
     }
-    public void keyboard(char []Reg){
-        Converter conv = new Converter();
+    @Override
+    public short keyboard(){
+        Document in = ConsoleIn.getDocument();
         try{
-            short c = (short)ConsoleIn.getText().charAt(0);
-            conv.DecimalToBinary(c, Reg, 16);
-            if(ConsoleIn.getText().length()>1){
-                ConsoleIn.setText(ConsoleIn.getText().substring(1));
-            }else if(ConsoleIn.getText().length()==1)
-                ConsoleIn.setText(null);
-        }catch(Exception e){
-            conv.DecimalToBinary((short)0, Reg, 16);
+            short c = (short)in.getText(0, 1).charAt(0);
+            in.remove(0, 1);
+            return c;
+        }catch(BadLocationException e){
             System.out.println("No Input Found");
+            return 0;
         }
     }
 
-    public void printer(char[] Reg){
-        printerStatus=1;
-        Converter conv = new Converter();
-        Character dec = (char)conv.BinaryToDecimal(Reg, 16);
-        String s = String.valueOf(dec);
-        try{
-            ConsoleOut.append(s);
-        }catch(Exception e){
-            return;
-        }
+    @Override
+    public int printerStatus(){
+        return printerStatus;
     }
-    public void printCache(Cache cache)throws IOException{
-        for(int i=cache.rear-1;i>=cache.front;i--){
-            //System.out.println(cache.lines[i].key + " "+cache.lines[i].val);
-            cache.DecimalToBinary(cache.lines[i].key, cacheAdder, 16);
-            cache.DecimalToBinary(cache.lines[i].val, cacheValue, 16);
-            String key = new String(cacheAdder);
-            String val = new String(cacheValue);
-            ArrayList<Character> keyarr = new ArrayList<Character>();
-            ArrayList<Character> valarr = new ArrayList<Character>();
-            for(int k=0;k<16;k++){
-                if(key.charAt(k)==(char)0) keyarr.add('0');
-                else keyarr.add('1');
-                if(val.charAt(k)==(char)0) valarr.add('0');
-                else valarr.add('1');
 
-            }
-            StringBuilder b = new StringBuilder();
-            StringBuilder c = new StringBuilder();
-            for(Character ch: keyarr) b.append(ch);
-            for(Character ch: valarr) c.append(ch);
-            CacheOutput.append(b.toString() + " " + c.toString()+"\n");
+    @Override
+    public void printer(short value){
+        printerStatus=1;
+        String s = String.valueOf((char)value);
+        SwingUtilities.invokeLater(() -> ConsoleOut.append(s));
+    }
+    @Override
+    public void printCache(Cache cache){
+        StringBuilder snapshot = new StringBuilder();
+        for(int i=0;i<cache.lineCount();i++){
+            if(!cache.isValid(i)) continue;
+            appendBits(snapshot, cache.keys[i]);
+            snapshot.append(' ');
+            appendBits(snapshot, cache.vals[i]);
+            snapshot.append('\n');
         }
-        CacheOutput.append("\n");
-        File trace = new File("Cache.txt");
-        FileWriter fw = new FileWriter(trace,true);
-        fw.write(CacheOutput.getText());
-        fw.close();
+        snapshot.append(String.format("hits %d  misses %d  evictions %d%n", cache.hits, cache.misses, cache.evictions));
+        CacheOutput.setText(snapshot.toString());
+    }
+    /**
+     * Append the 16 bits of a word, most significant bit first
+     */
+    private static void appendBits(StringBuilder b, short word){
+        for(int k=15;k>=0;k--)
+            b.append((word >>> k & 1) == 1 ? '1' : '0');
     }
     public void Run(){
         //this.setDefaultCloseOperation(this.EXIT_ON_CLOSE);
@@ -0,0 +1,25 @@
+package com.csa.simulator.components;
+
+/**
+ * ExecutionProbe Interface - Observer called by Machine after every executed instruction.
+ * While a probe is attached, Machine.run interprets every instruction instead of running
+ * translated blocks, so the probe sees each one.
+ */
+@FunctionalInterface
+public interface ExecutionProbe {
+    /**
+     * @param c  CPU after the instruction, IR holding it and PC the address executed next
+     * @param pc Address the instruction was fetched from
+     */
+    void executed(CPU c, int pc);
+
+    /**
+     * @return A probe calling this one, then next
+     */
+    default ExecutionProbe andThen(ExecutionProbe next) {
+        return (c, pc) -> {
+            executed(c, pc);
+            next.executed(c, pc);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.csa.simulator.components;
+
+/**
+ * Handler Interface - The work of one decoded instruction, as run by a translated block.
+ * Handlers are built once per instruction word by Handlers.forInstruction with their
+ * register operands, immediates and shift kinds already bound, so executing one never
+ * looks at the instruction fields again.
+ */
+@FunctionalInterface
+public interface Handler {
+    /**
+     * Execute the instruction
+     * @param c  CPU to update
+     * @param EA Effective address, already resolved for memory reference instructions
+     * @param m  Memory to access
+     */
+    void execute(CPU c, short EA, Memory m);
+}
@@ -0,0 +1,136 @@
+package com.csa.simulator.components;
+
+/**
+ * Handlers Class - Opcode dispatch table of the block translator.
+ * Each of the 64 opcodes maps to a Factory that builds the Handler for one instruction word.
+ * The interpreter keeps its switch in CPU.execute; a translated block binds each instruction's
+ * Handler at a call site of its own. Every handler calls the same CPU method as the switch,
+ * with the instruction fields bound as constants, so each instruction is defined once;
+ * instructions differing only by register share a prebuilt handler.
+ */
+final class Handlers {
+    /**
+     * Builds the handler of one opcode from the instruction fields
+     */
+    @FunctionalInterface
+    interface Factory {
+        Handler make(int rx, int ix, int address, int count, int lr, int al);
+    }
+
+    /** Does nothing: HLT **/
+    static final Handler NOP = (c, EA, m) -> { };
+    /** Unknown opcode: raise the machine fault **/
+    static final Handler ILLEGAL = (c, EA, m) -> {
+        c.MFR |= CPU.MF_ILLEGAL_OPCODE;
+        m.write(4, c.PC);
+    };
+
+    private static final Factory[] TABLE = new Factory[64];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) TABLE[i] = (rx, ix, a, n, lr, al) -> ILLEGAL;
+        TABLE[CPU.HLT] = (rx, ix, a, n, lr, al) -> NOP;
+
+        // Memory reference
+        Handler[] ldr = byRegister(r -> (c, EA, m) -> c.StoreRegister((short) r, EA, m));
+        Handler[] str = byRegister(r -> (c, EA, m) -> c.MemStore((short) r, EA, m));
+        Handler[] lda = byRegister(r -> (c, EA, m) -> c.StoreRegisterEA((short) r, EA));
+        Handler[] ldx = byRegister(x -> (c, EA, m) -> c.StoreIndexRegister((short) x, EA, m));
+        Handler[] stx = byRegister(x -> (c, EA, m) -> c.MemStoreFromIndex((short) x, EA, m));
+        Handler[] amr = byRegister(r -> (c, EA, m) -> c.fAMR((short) r, EA, m));
+        Handler[] smr = byRegister(r -> (c, EA, m) -> c.fSMR((short) r, EA, m));
+        TABLE[CPU.LDR] = (rx, ix, a, n, lr, al) -> ldr[rx];
+        TABLE[CPU.STR] = (rx, ix, a, n, lr, al) -> str[rx];
+        TABLE[CPU.LDA] = (rx, ix, a, n, lr, al) -> lda[rx];
+        TABLE[CPU.LDX] = (rx, ix, a, n, lr, al) -> ldx[ix];
+        TABLE[CPU.STX] = (rx, ix, a, n, lr, al) -> stx[ix];
+        TABLE[CPU.AMR] = (rx, ix, a, n, lr, al) -> amr[rx];
+        TABLE[CPU.SMR] = (rx, ix, a, n, lr, al) -> smr[rx];
+
+        // Immediate
+        TABLE[CPU.AIR] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fAIR((short) rx, (short) a);
+        TABLE[CPU.SIR] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fSIR((short) rx, (short) a);
+        TABLE[CPU.RFS] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.RFSImmed((short) a);
+
+        // Transfer
+        Handler[] jz = byRegister(r -> (c, EA, m) -> c.JumpZero((short) r, EA));
+        Handler[] jne = byRegister(r -> (c, EA, m) -> c.JumpIfNotEqual((short) r, EA));
+        Handler[] jcc = byRegister(r -> (c, EA, m) -> c.JumpIfCond((short) r, EA));
+        Handler[] sob = byRegister(r -> (c, EA, m) -> c.SubandBranch((short) r, EA));
+        Handler[] jge = byRegister(r -> (c, EA, m) -> c.JumpGE((short) r, EA));
+        Handler jma = (c, EA, m) -> c.UncondJump(EA);
+        Handler jsr = (c, EA, m) -> c.JumpSubRoutine(EA);
+        TABLE[CPU.JZ] = (rx, ix, a, n, lr, al) -> jz[rx];
+        TABLE[CPU.JNE] = (rx, ix, a, n, lr, al) -> jne[rx];
+        TABLE[CPU.JCC] = (rx, ix, a, n, lr, al) -> jcc[rx];
+        TABLE[CPU.JMA] = (rx, ix, a, n, lr, al) -> jma;
+        TABLE[CPU.JSR] = (rx, ix, a, n, lr, al) -> jsr;
+        TABLE[CPU.SOB] = (rx, ix, a, n, lr, al) -> sob[rx];
+        TABLE[CPU.JGE] = (rx, ix, a, n, lr, al) -> jge[rx];
+
+        // Register to register, ry is in the ix field
+        Handler[][] mlt = byRegisterPair((x, y) -> (c, EA, m) -> c.fMLT((short) x, (short) y));
+        Handler[][] dvd = byRegisterPair((x, y) -> (c, EA, m) -> c.fDVD((short) x, (short) y));
+        Handler[][] trr = byRegisterPair((x, y) -> (c, EA, m) -> c.fTRR((short) x, (short) y));
+        Handler[][] and = byRegisterPair((x, y) -> (c, EA, m) -> c.fAND((short) x, (short) y));
+        Handler[][] orr = byRegisterPair((x, y) -> (c, EA, m) -> c.fORR((short) x, (short) y));
+        Handler[] not = byRegister(r -> (c, EA, m) -> c.fNOT((short) r));
+        TABLE[CPU.MLT] = (rx, ix, a, n, lr, al) -> mlt[rx][ix];
+        TABLE[CPU.DVD] = (rx, ix, a, n, lr, al) -> dvd[rx][ix];
+        TABLE[CPU.TRR] = (rx, ix, a, n, lr, al) -> trr[rx][ix];
+        TABLE[CPU.AND] = (rx, ix, a, n, lr, al) -> and[rx][ix];
+        TABLE[CPU.ORR] = (rx, ix, a, n, lr, al) -> orr[rx][ix];
+        TABLE[CPU.NOT] = (rx, ix, a, n, lr, al) -> not[rx];
+
+        // Shift and rotate
+        TABLE[CPU.SRC] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fSRC((short) rx, (short) n, (byte) lr, (byte) al);
+        TABLE[CPU.RRC] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fRRC((short) rx, (short) n, (byte) lr, (byte) al);
+
+        // Trap and I/O
+        TABLE[CPU.TRAP] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fTrap((short) n, m);
+        TABLE[CPU.IN] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fIN((short) rx, (byte) a, c.dev);
+        TABLE[CPU.OUT] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fOUT((short) rx, (byte) a, c.dev);
+        TABLE[CPU.CHK] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.fCHK((short) rx, (byte) a, c.dev);
+
+        // Floating point and vector
+        TABLE[CPU.FADD] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.FloatAdd((short) rx, EA, m);
+        TABLE[CPU.FSUB] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.FloatSub((short) rx, EA, m);
+        TABLE[CPU.VADD] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.VectorAdd((short) rx, EA, m);
+        TABLE[CPU.VSUB] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.VectorSub((short) rx, EA, m);
+        TABLE[CPU.CNVRT] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.ConvertFloatFixed((short) rx, EA, m);
+        TABLE[CPU.LDFR] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.LoadFloatRegister((short) rx, EA, m);
+        TABLE[CPU.STFR] = (rx, ix, a, n, lr, al) -> (c, EA, m) -> c.StoreFloatRegister((short) rx, EA, m);
+    }
+
+    private Handlers() {
+    }
+
+    /**
+     * Handler for one instruction word
+     * @param opcode 6 bit opcode
+     */
+    static Handler forInstruction(int opcode, int rx, int ix, int address, int count, int lr, int al) {
+        return TABLE[opcode].make(rx, ix, address, count, lr, al);
+    }
+
+    private interface PerRegister {
+        Handler make(int r);
+    }
+
+    private interface PerRegisterPair {
+        Handler make(int x, int y);
+    }
+
+    private static Handler[] byRegister(PerRegister f) {
+        Handler[] h = new Handler[4];
+        for (int r = 0; r < h.length; r++) h[r] = f.make(r);
+        return h;
+    }
+
+    private static Handler[][] byRegisterPair(PerRegisterPair f) {
+        Handler[][] h = new Handler[4][4];
+        for (int x = 0; x < 4; x++)
+            for (int y = 0; y < 4; y++) h[x][y] = f.make(x, y);
+        return h;
+    }
+}
@@ -0,0 +1,72 @@
+package com.csa.simulator.components;
+
+/**
+ * HeadlessDevices Class - Keyboard and printer backed by plain buffers,
+ * so programs can run without building the Swing console.
+ */
+public class HeadlessDevices implements IODevice {
+    private final StringBuilder input = new StringBuilder();
+    private final StringBuilder output = new StringBuilder();
+    private int inputPos = 0;
+    private int printerStatus = 0;
+
+    public HeadlessDevices() {
+    }
+
+    public HeadlessDevices(String input) {
+        this.input.append(input);
+    }
+
+    /**
+     * Queue characters for the console keyboard
+     */
+    public void type(String text) {
+        input.append(text);
+    }
+
+    /**
+     * @return Everything written to the console printer so far
+     */
+    public String getOutput() {
+        return output.toString();
+    }
+
+    /**
+     * Clear both buffers and the printer status
+     */
+    public void clear() {
+        input.setLength(0);
+        output.setLength(0);
+        inputPos = 0;
+        printerStatus = 0;
+    }
+
+    @Override
+    public short keyboard() {
+        if (inputPos < input.length()) {
+            return (short) input.charAt(inputPos++);
+        }
+        return 0;
+    }
+
+    @Override
+    public void printer(short value) {
+        printerStatus = 1;
+        output.append((char) value);
+    }
+
+    @Override
+    public int keyboardStatus() {
+        return inputPos < input.length() ? 1 : 0;
+    }
+
+    @Override
+    public int printerStatus() {
+        return printerStatus;
+    }
+
+    @Override
+    public void printCache(Cache cache) {
+        // No cache panel without a display
+    }
+}
@@ -0,0 +1,35 @@
+package com.csa.simulator.components;
+
+/**
+ * IODevice Interface - The devices the CPU talks to through IN, OUT and CHK.
+ * Devices is the Swing console; HeadlessDevices runs without a display.
+ */
+public interface IODevice {
+    /**
+     * Read the next keyboard character
+     * @return The character, or 0 if nothing is buffered
+     */
+    short keyboard();
+
+    /**
+     * Write a character to the console printer
+     * @param value Register value holding the character
+     */
+    void printer(short value);
+
+    /**
+     * @return 1 if the keyboard has buffered input, 0 otherwise
+     */
+    int keyboardStatus();
+
+    /**
+     * @return 1 if the printer has been used, 0 otherwise
+     */
+    int printerStatus();
+
+    /**
+     * Show a snapshot of the current cache contents
+     * @param cache Cache to print
+     */
+    void printCache(Cache cache);
+}
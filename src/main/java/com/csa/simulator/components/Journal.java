@@ -0,0 +1,383 @@
+package com.csa.simulator.components;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Journal Class - Reverse execution. Attached to a machine as a probe and memory listener,
+ * it records for every instruction only the registers and memory words that changed, with
+ * their old values, so the machine can be stepped back, rewound a number of instructions
+ * or run back to an address.
+ *
+ * Records are packed into a ring of ints sized from a byte budget, the oldest dropped when
+ * it is full. Every keyframeInterval instructions a Checkpoint is taken as well; a rewind past
+ * the oldest record restores the last keyframe before the target and replays from there.
+ * Changes made between two instructions (front panel stores, register edits) are undone with
+ * the instruction after them. A reset or program load starts a new history.
+ *
+ * Stepping back restores registers, memory and the simulated clock only: cache contents and
+ * statistics are rewound by keyframe restores alone, and device state never is, so replaying
+ * a stretch that reads the keyboard does not reproduce it.
+ */
+public final class Journal implements ExecutionProbe, MemoryListener {
+    /** PC, IR, MAR, MBR, CC, MFR, R0-R3, X1-X3, FR0 and FR1, in Checkpoint order **/
+    private static final int REGISTERS = 15;
+    private static final int REGISTER_BITS = (1 << REGISTERS) - 1;
+    /** Memory words one record can hold **/
+    private static final int MAX_WRITES = 0xFFFF;
+    private static final int MAX_KEYFRAMES = 64;
+    private static final int MIN_RING = 1 << 10;
+
+    private final Machine machine;
+    private final long keyframeInterval;
+
+    /**
+     * Record layout, one int each unless noted: header, (address << 16 | old word) per memory
+     * write, old register values two per int, cycles charged, header again. The header is
+     * writes << 15 | changed register mask; the copy at each end lets records be walked both ways.
+     */
+    private final int[] ring;
+    private final int ringMask;
+    /** Absolute ring positions: oldest record, the open record's header slot, next free slot **/
+    private long head, open, tail;
+    private int records;
+    /** Memory writes in the open record **/
+    private int writes;
+
+    /** Registers and clock after the last recorded instruction **/
+    private short[] last = new short[REGISTERS];
+    private short[] now = new short[REGISTERS];
+    private final short[] olds = new short[REGISTERS];
+    private long lastCycles;
+
+    private final Checkpoint[] keyframes = new Checkpoint[MAX_KEYFRAMES];
+    private final long[] keyframeAt = new long[MAX_KEYFRAMES];
+    private int keyframeCount;
+    private long keyframeBytes;
+    private final long keyframeBudget;
+
+    /** Instructions executed, less those stepped back **/
+    private long position;
+    /** Set while the journal itself writes the machine **/
+    private boolean suspended;
+    /** History can no longer be trusted: memory was replaced or a record overflowed **/
+    private boolean broken;
+
+    private Journal(Machine machine, int budgetBytes, long keyframeInterval) {
+        if (keyframeInterval < 1) throw new IllegalArgumentException("Keyframe interval must be positive");
+        this.machine = machine;
+        this.keyframeInterval = keyframeInterval;
+        ring = new int[Math.max(MIN_RING, Integer.highestOneBit(budgetBytes / 2 / Integer.BYTES))];
+        ringMask = ring.length - 1;
+        keyframeBudget = budgetBytes / 2;
+        clear();
+    }
+
+    /**
+     * Start journaling a machine, which interprets every instruction from now on.
+     * A memory has one listener, so a machine takes one journal.
+     * @param budgetBytes     Memory for records and keyframes, half each
+     * @param keyframeInterval Instructions between two keyframes
+     */
+    public static Journal attach(Machine machine, int budgetBytes, long keyframeInterval) {
+        Journal j = new Journal(machine, budgetBytes, keyframeInterval);
+        machine.memory.listener = j;
+        machine.addProbe(j);
+        return j;
+    }
+
+    /**
+     * Drop all history and start again from the current state
+     */
+    public void clear() {
+        head = open = 0;
+        tail = 1;
+        records = writes = 0;
+        keyframeCount = 0;
+        keyframeBytes = 0;
+        broken = false;
+        sync();
+        keyframe();
+    }
+
+    @Override
+    public void writing(int address, short old, short value) {
+        if (suspended || broken || old == value) return;
+        if (writes == MAX_WRITES) {
+            broken = true;
+            return;
+        }
+        append(address << 16 | (old & 0xFFFF));
+        writes++;
+    }
+
+    @Override
+    public void replacing() {
+        if (!suspended) broken = true;
+    }
+
+    @Override
+    public void executed(CPU c, int pc) {
+        position++;
+        if (broken) {
+            clear();
+            return;
+        }
+        read(c, now);
+        int changed = 0, n = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (now[i] != last[i]) {
+                changed |= 1 << i;
+                olds[n++] = last[i];
+            }
+        }
+        for (int i = 0; i < n; i += 2)
+            append((olds[i] & 0xFFFF) << 16 | (i + 1 < n ? olds[i + 1] & 0xFFFF : 0));
+        long cycles = c.cycles();
+        append((int) (cycles - lastCycles));
+        int header = writes << REGISTERS | changed;
+        append(header);
+        if (broken) {
+            clear();
+            return;
+        }
+        ring[(int) open & ringMask] = header;
+        records++;
+        open = tail;
+        append(0);
+        writes = 0;
+        short[] t = last;
+        last = now;
+        now = t;
+        lastCycles = cycles;
+        if (position - keyframeAt[keyframeCount - 1] >= keyframeInterval) keyframe();
+    }
+
+    private void append(int value) {
+        if (tail - head == ring.length) {
+            if (head == open) {
+                broken = true;
+                return;
+            }
+            int header = ring[(int) head & ringMask];
+            head += length(header);
+            records--;
+        }
+        ring[(int) tail & ringMask] = value;
+        tail++;
+    }
+
+    private static int length(int header) {
+        return 3 + (header >>> REGISTERS) + (Integer.bitCount(header & REGISTER_BITS) + 1) / 2;
+    }
+
+    /**
+     * Undo the last instruction, and anything changed after it
+     * @return false if there is no recorded instruction to undo
+     */
+    public boolean stepBack() {
+        if (records == 0) return false;
+        CPU cpu = machine.cpu;
+        Breakpoints watch = machine.memory.watch;
+        machine.memory.watch = null;
+        suspended = true;
+        try {
+            for (long p = tail - 1; p > open; p--) undoWrite(ring[(int) p & ringMask]);
+            int header = ring[(int) (open - 1) & ringMask];
+            int changed = header & REGISTER_BITS;
+            int count = header >>> REGISTERS;
+            long start = open - length(header);
+            long p = start + 1 + count;
+            for (int i = 0, j = 0; i < REGISTERS; i++) {
+                if ((changed & 1 << i) == 0) continue;
+                int w = ring[(int) (p + j / 2) & ringMask];
+                last[i] = (short) ((j & 1) == 0 ? w >>> 16 : w);
+                j++;
+            }
+            write(last, cpu);
+            lastCycles -= ring[(int) (open - 2) & ringMask];
+            cpu.setCycles(lastCycles);
+            for (long q = start + count; q > start; q--) undoWrite(ring[(int) q & ringMask]);
+            open = start;
+            tail = start + 1;
+        } finally {
+            suspended = false;
+            machine.memory.watch = watch;
+        }
+        writes = 0;
+        records--;
+        position--;
+        while (keyframeCount > 1 && keyframeAt[keyframeCount - 1] > position) dropKeyframe(keyframeCount - 1);
+        machine.halted = false;
+        cpu.dirty = CPU.DIRTY_ALL;
+        return true;
+    }
+
+    private void undoWrite(int entry) {
+        int address = entry >>> 16;
+        machine.memory.write(address, (short) entry);
+        machine.cpu.decoded.invalidate(address);
+    }
+
+    /**
+     * Go back n instructions, or as far as the history reaches
+     * @return Instructions actually gone back
+     */
+    public long rewind(long n) {
+        long from = position;
+        long target = Math.max(position - n, oldest());
+        if (target < position - records) {
+            int k = keyframeCount - 1;
+            while (keyframeAt[k] > target) k--;
+            restore(k);
+            replay(target);
+        }
+        while (position > target) stepBack();
+        return from - position;
+    }
+
+    /**
+     * Step back until the PC reaches an address the predicate accepts, searching older
+     * history by replaying from keyframes once the records run out
+     * @return Instructions gone back, or -1 (having gone back as far as possible) if no
+     *         earlier point matched
+     */
+    public long runBack(IntPredicate stop) {
+        long from = position;
+        while (stepBack())
+            if (stop.test(machine.cpu.PC & 0xFFFF)) return from - position;
+        long end = position;
+        while (true) {
+            int k = keyframeCount - 1;
+            while (k >= 0 && keyframeAt[k] >= end) k--;
+            if (k < 0) break;
+            long at = keyframeAt[k];
+            restore(k);
+            long hit = stop.test(machine.cpu.PC & 0xFFFF) ? at : -1;
+            while (position < end) {
+                machine.step();
+                if (position < end && stop.test(machine.cpu.PC & 0xFFFF)) hit = position;
+            }
+            if (hit >= 0) {
+                rewind(position - hit);
+                return from - position;
+            }
+            end = at;
+        }
+        rewind(position - oldest());
+        return -1;
+    }
+
+    /**
+     * Bring the machine back to a keyframe, dropping every record and later keyframe
+     */
+    private void restore(int k) {
+        suspended = true;
+        try {
+            keyframes[k].restore(machine);
+        } finally {
+            suspended = false;
+        }
+        while (keyframeCount > k + 1) dropKeyframe(keyframeCount - 1);
+        position = keyframeAt[k];
+        head = open = 0;
+        tail = 1;
+        records = writes = 0;
+        sync();
+        machine.halted = false;
+        machine.cpu.dirty = CPU.DIRTY_ALL;
+    }
+
+    /**
+     * Execute forward to a position, recording as usual. Every attached probe sees the
+     * replayed instructions.
+     */
+    private void replay(long target) {
+        while (position < target) machine.step();
+    }
+
+    private void sync() {
+        read(machine.cpu, last);
+        lastCycles = machine.cpu.cycles();
+    }
+
+    private void keyframe() {
+        if (keyframeCount == MAX_KEYFRAMES) dropKeyframe(0);
+        Checkpoint c = Checkpoint.capture(machine);
+        keyframes[keyframeCount] = c;
+        keyframeAt[keyframeCount++] = position;
+        keyframeBytes += c.byteSize();
+        while (keyframeCount > 1 && keyframeBytes > keyframeBudget) dropKeyframe(0);
+    }
+
+    private void dropKeyframe(int k) {
+        keyframeBytes -= keyframes[k].byteSize();
+        System.arraycopy(keyframes, k + 1, keyframes, k, keyframeCount - k - 1);
+        System.arraycopy(keyframeAt, k + 1, keyframeAt, k, keyframeCount - k - 1);
+        keyframes[--keyframeCount] = null;
+    }
+
+    private static void read(CPU c, short[] r) {
+        r[0] = c.PC;
+        r[1] = c.IR;
+        r[2] = c.MAR;
+        r[3] = c.MBR;
+        r[4] = c.CC;
+        r[5] = c.MFR;
+        System.arraycopy(c.R, 0, r, 6, 4);
+        System.arraycopy(c.X, 1, r, 10, 3);
+        r[13] = c.FR.FR0;
+        r[14] = c.FR.FR1;
+    }
+
+    private static void write(short[] r, CPU c) {
+        c.PC = r[0];
+        c.IR = r[1];
+        c.MAR = r[2];
+        c.MBR = r[3];
+        c.CC = (byte) r[4];
+        c.MFR = (byte) r[5];
+        System.arraycopy(r, 6, c.R, 0, 4);
+        System.arraycopy(r, 10, c.X, 1, 3);
+        c.FR.FR0 = r[13];
+        c.FR.FR1 = r[14];
+    }
+
+    /**
+     * @return Instructions executed since the journal was attached, less those gone back
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * @return Earliest position rewind can reach
+     */
+    public long oldest() {
+        return Math.min(position - records, keyframeAt[0]);
+    }
+
+    /**
+     * @return Instructions that can be stepped back without a keyframe replay
+     */
+    public int records() {
+        return records;
+    }
+
+    /**
+     * @return Bytes of history held, records and keyframes
+     */
+    public long bytes() {
+        return (tail - head) * Integer.BYTES + keyframeBytes;
+    }
+
+    public int keyframes() {
+        return keyframeCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Position %d, %d records (%.1f bytes each), %d keyframes, %d KB held, back to %d",
+                position, records, records == 0 ? 0.0 : (double) (tail - head) * Integer.BYTES / records,
+                keyframeCount, bytes() >> 10, oldest());
+    }
+}
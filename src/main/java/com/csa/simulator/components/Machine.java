@@ -0,0 +1,226 @@
+package com.csa.simulator.components;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Machine Class - Owns the CPU, Memory and devices and drives the fetch/execute loop
+ * without any Swing dependency, so programs can run headless at full speed.
+ */
+public class Machine {
+    /** Address the IPL program starts executing from */
+    public static final short IPL_START = 48;
+    /** Instructions run between two deadline checks **/
+    public static final int SLICE = 1 << 16;
+
+    public final CPU cpu;
+    public final Memory memory;
+    public final IODevice devices;
+    /** Compiles hot straight-line code for run; step always interprets **/
+    public final BlockTranslator translator;
+    /** Called after every instruction when set, e.g. a Profiler; run interprets while one is attached **/
+    public ExecutionProbe probe;
+    /** Execution breakpoints and memory watchpoints checked by run **/
+    public final Breakpoints breakpoints;
+    /** Set when a HLT instruction executes, cleared by the next step, a load, a reset or clearHalt **/
+    boolean halted;
+    /** Breakpoint the last run stopped at, which the next run executes instead of stopping again **/
+    private int resumeAt = -1;
+
+    /**
+     * Headless machine with buffered keyboard and printer
+     */
+    public Machine() {
+        this(new HeadlessDevices());
+    }
+
+    public Machine(IODevice devices) {
+        this(devices, new Memory());
+    }
+
+    /**
+     * Machine with a custom memory size and address width
+     */
+    public Machine(IODevice devices, Memory memory) {
+        this.devices = devices;
+        this.memory = memory;
+        this.cpu = new CPU(devices, memory.size, memory.addressBits);
+        this.translator = new BlockTranslator(memory.size);
+        cpu.decoded.translator = translator;
+        this.breakpoints = new Breakpoints(cpu, memory, translator);
+        translator.breakpoints = breakpoints;
+    }
+
+    /**
+     * Attach a probe, after any already attached
+     */
+    public void addProbe(ExecutionProbe p) {
+        probe = probe == null ? p : probe.andThen(p);
+    }
+
+    /**
+     * Load an IPL file of "address value" hex pairs, or a binary program image, into memory
+     * @param file IPL file or image to read
+     * @return Number of words loaded
+     * @throws IOException if the file cannot be read, is malformed, or does not fit in memory
+     */
+    public int load(File file) throws IOException {
+        int words = ProgramLoader.load(file.toPath(), memory);
+        loaded();
+        return words;
+    }
+
+    /**
+     * Load an IPL text or binary image held in memory
+     * @return Number of words loaded
+     */
+    public int load(byte[] program) throws IOException {
+        int words = ProgramLoader.load(program, memory);
+        loaded();
+        return words;
+    }
+
+    private void loaded() {
+        halted = false;
+        cpu.decoded.clear();
+        if (memory.listener != null) memory.listener.replacing();
+    }
+
+    /**
+     * Load an IPL file and point the PC at the start of the program
+     * @param file IPL file to read
+     */
+    public void ipl(File file) throws IOException {
+        cpu.setPC(IPL_START);
+        load(file);
+    }
+
+    /**
+     * Fetch, execute and advance the PC for a single instruction
+     * @return false once the machine has halted
+     */
+    public boolean step() {
+        int EA = cpu.PC & 0xFFFF;
+        if (EA >= memory.size) {
+            cpu.MFR |= CPU.MF_ILLEGAL_ADDRESS;
+            cpu.MFHandle(memory);
+            memory.write(4, (short) (memory.read(4) + 1));
+            cpu.setPC(memory.read(4));
+            halted = false;
+            return true;
+        }
+        cpu.IR = memory.fetch(EA);
+        cpu.cache.read(EA, cpu.IR);
+        cpu.Execute(memory);
+        advance(cpu, memory, EA);
+        if (probe != null) probe.executed(cpu, EA);
+        halted = cpu.IR == CPU.HLT;
+        return !halted;
+    }
+
+    /**
+     * Move the PC past the instruction in IR: a fault goes through the fault handler,
+     * jumps have set it already, anything else moves on to the next word
+     * @param EA Address the instruction was fetched from
+     */
+    static void advance(CPU cpu, Memory memory, int EA) {
+        int val = (cpu.IR >>> 10) & 0x3F; // Get The IR Values to check for Conditions for Jumping
+        if (cpu.MFR != 0) {
+            cpu.MFHandle(memory);
+            EA = memory.read(4);
+            EA++;
+        } else if (val >= 0x08 && val <= 0x0F) {
+            EA = cpu.PC;
+        } else
+            EA++;
+        cpu.setPC((short) EA);
+    }
+
+    /**
+     * Run until the machine halts, the instruction budget is used up or a breakpoint or
+     * watchpoint stops it.
+     * Hot blocks are run by the translator when it is enabled and no probe is attached,
+     * with the same effect as stepping.
+     * @param maxInstructions Instruction budget
+     * @return Number of instructions executed
+     */
+    public long run(long maxInstructions) {
+        long count = 0;
+        int resume = resumeAt;
+        resumeAt = -1;
+        breakpoints.clearStop();
+        while (count < maxInstructions) {
+            int pc = cpu.PC & 0xFFFF;
+            if (breakpoints.isBreakpoint(pc)) {
+                if (!(count == 0 && pc == resume) && breakpoints.breaksAt(pc)) {
+                    resumeAt = pc;
+                    break;
+                }
+            } else if (translator.enabled && probe == null) {
+                int n = translator.run(cpu, memory, maxInstructions - count);
+                if (n > 0) {
+                    count += n;
+                    halted = false;
+                    if (breakpoints.triggered) break;
+                    continue;
+                }
+            }
+            count++;
+            if (!step() || breakpoints.triggered) break;
+        }
+        return count;
+    }
+
+    /**
+     * Run until the machine halts, the budget is used up or System.nanoTime() passes a deadline.
+     * The deadline and the thread's interrupt flag are checked every SLICE instructions.
+     * @param deadline System.nanoTime() value to stop at
+     * @return Number of instructions executed
+     */
+    public long run(long maxInstructions, long deadline) {
+        long count = 0;
+        while (true) {
+            count += run(Math.min(SLICE, maxInstructions - count));
+            if (halted || breakpoints.stop != null || count >= maxInstructions
+                    || System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted())
+                return count;
+        }
+    }
+
+    /**
+     * Run until a HLT instruction is executed
+     * @return Number of instructions executed
+     */
+    public long runUntilHalt() {
+        return run(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return true if the last executed instruction was HLT
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    /**
+     * Forget a HLT, so isHalted is false until the next one executes
+     */
+    public void clearHalt() {
+        halted = false;
+    }
+
+    /**
+     * @return true if a breakpoint or watchpoint stopped the last run
+     */
+    public boolean isStopped() {
+        return breakpoints.stop != null;
+    }
+
+    /**
+     * Reset the CPU and clear memory
+     */
+    public void reset() {
+        cpu.Reset(memory);
+        halted = false;
+    }
+}
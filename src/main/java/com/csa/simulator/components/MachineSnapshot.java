@@ -0,0 +1,44 @@
+package com.csa.simulator.components;
+
+/**
+ * MachineSnapshot Record - Immutable copy of the registers and cache a display needs,
+ * taken on the execution thread and handed to the Swing thread through a SnapshotMailbox.
+ *
+ * @param PC           Program Counter
+ * @param IR           Instruction Register
+ * @param MAR          Memory Address Register
+ * @param MBR          Memory Buffer Register
+ * @param CC           Condition Code
+ * @param MFR          Machine Fault Register
+ * @param R            General purpose registers R0-R3 (index 0 to 3)
+ * @param X            Index registers X1-X3 (index 1 to 3, index 0 is unused)
+ * @param dirty        CPU.DIRTY_* bits of the registers changed since the previous snapshot
+ * @param halted       True if the last instruction was HLT
+ * @param instructions Instructions executed by the current run
+ * @param rate         Instructions per second over the last frame
+ * @param cache        Private copy of the cache, never modified after capture
+ */
+public record MachineSnapshot(short PC, short IR, short MAR, short MBR, byte CC, byte MFR,
+                              short R0, short R1, short R2, short R3, short X1, short X2, short X3,
+                              int dirty, boolean halted, long instructions, double rate, Cache cache) {
+
+    /**
+     * Copy the state of a machine. Must run on the thread executing it.
+     * @param dirty Registers to report as changed, usually cpu.takeDirty()
+     */
+    public static MachineSnapshot capture(Machine machine, int dirty, long instructions, double rate) {
+        CPU c = machine.cpu;
+        return new MachineSnapshot(c.PC, c.IR, c.MAR, c.MBR, c.CC, c.MFR,
+                c.R[0], c.R[1], c.R[2], c.R[3], c.X[1], c.X[2], c.X[3],
+                dirty, machine.isHalted(), instructions, rate, c.cache.copy());
+    }
+
+    /**
+     * @return This snapshot reporting the changes of an older, unrendered one as well
+     */
+    MachineSnapshot mergeDirty(MachineSnapshot older) {
+        if ((older.dirty | dirty) == dirty) return this;
+        return new MachineSnapshot(PC, IR, MAR, MBR, CC, MFR, R0, R1, R2, R3, X1, X2, X3,
+                dirty | older.dirty, halted, instructions, rate, cache);
+    }
+}
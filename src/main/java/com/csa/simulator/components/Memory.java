@@ -1,38 +1,183 @@
 package com.csa.simulator.components;
 
+import java.nio.ShortBuffer;
+import java.util.Objects;
+
 /**
  * Memory Class - Defining the memory block here
+ * Words are held in 256-word pages that are only allocated when a non-zero
+ * value is first written, so untouched memory costs nothing and Reset only
+ * has to drop the pages that were used.
  *
  * @author Avish Kaushik
  * @version 1.0
  */
 public class Memory
 {
-    public short[] data; // Data is Storing an array of words
     /**
-     * 4KB Memory - 1024 * 2 (Memory of 2048 Words)
-     * 8KB Memory - 1024 * 4 (Memory of 4096 Words)
+     * 4KB Memory - 1024 * 2 (Memory of 2048 Words), the original machine
      **/
-    static int KB2 = 1024 * 2;
-    static int KB4 = 1024 * 4;
+    static final int KB2 = 1024 * 2;
+    /** Original 12 bit PC and MAR **/
+    static final int DEFAULT_ADDRESS_BITS = 12;
+    /** Largest address space, 16 bit addresses **/
+    public static final int MAX_ADDRESS_BITS = 16;
+    public static final int PAGE_BITS = 8;
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Number of installed words, addresses at or above it fault **/
+    public final int size;
+    /** Width of PC and MAR **/
+    public final int addressBits;
+    public final int addressMask;
+    /** Page table, null until a page is written **/
+    private final short[][] pages;
+    /** Indexes of the allocated pages, in allocation order **/
+    private final int[] touched;
+    private int touchedCount;
+    /** Told about every write when set, e.g. a Journal **/
+    public MemoryListener listener;
+    /** Breakpoints with read or write watchpoints set, null while there are none **/
+    Breakpoints watch;
+
+    /**
+     * The original machine: 2048 words behind a 12 bit address
+     */
     public Memory(){
+        this(KB2, DEFAULT_ADDRESS_BITS);
+    }
+
+    /**
+     * @param size Installed words, at most 2^addressBits
+     * @param addressBits Width of PC and MAR, at most 16
+     */
+    public Memory(int size, int addressBits){
+        if(addressBits < 1 || addressBits > MAX_ADDRESS_BITS)
+            throw new IllegalArgumentException("Address width must be between 1 and " + MAX_ADDRESS_BITS + " bits");
+        if(size < 1 || size > 1 << addressBits)
+            throw new IllegalArgumentException("Memory size must be between 1 and " + (1 << addressBits) + " words");
+        this.size = size;
+        this.addressBits = addressBits;
+        this.addressMask = (1 << addressBits) - 1;
+        int pageCount = (size + PAGE_MASK) >>> PAGE_BITS;
+        pages = new short[pageCount][];
+        touched = new int[pageCount];
+    }
+
+    /**
+     * Read one word
+     * @throws IndexOutOfBoundsException if the address is not installed
+     */
+    public short read(int address){
+        Objects.checkIndex(address, size);
+        if(watch != null) watch.reading(address);
+        short[] page = pages[address >>> PAGE_BITS];
+        return page == null ? 0 : page[address & PAGE_MASK];
+    }
+
+    /**
+     * Read a word without firing watchpoints: instruction fetches, and reports and image writes that only look
+     * @throws IndexOutOfBoundsException if the address is not installed
+     */
+    short fetch(int address){
+        Objects.checkIndex(address, size);
+        short[] page = pages[address >>> PAGE_BITS];
+        return page == null ? 0 : page[address & PAGE_MASK];
+    }
 
-        data = new short[KB2];
-        /** ^ - Java Does not support unsigned primitive type
-         * so we are expanding with int to cover 
-         * max unsigned value that can be stored in a largest 16bit number.
-         * Value resets to 0
-         **/
-        for(int i=0;i<KB2;i++){
-            data[i] = 0;
+    /**
+     * Write one word, allocating its page on the first non-zero write
+     * @throws IndexOutOfBoundsException if the address is not installed
+     */
+    public void write(int address, short value){
+        Objects.checkIndex(address, size);
+        short[] page = pages[address >>> PAGE_BITS];
+        if(listener != null) listener.writing(address, page == null ? 0 : page[address & PAGE_MASK], value);
+        if(page == null && value != 0) page = allocate(address >>> PAGE_BITS);
+        if(page != null) page[address & PAGE_MASK] = value;
+        if(watch != null) watch.written(address);
+    }
+
+    /**
+     * Bulk write: copy the remaining words of the buffer into memory from the address on,
+     * a page at a time
+     * @throws IndexOutOfBoundsException if the words do not fit in the installed memory
+     */
+    public void write(int address, ShortBuffer words){
+        int length = words.remaining();
+        Objects.checkFromIndexSize(address, length, size);
+        if(listener != null) listener.replacing();
+        while(length > 0){
+            int index = address >>> PAGE_BITS;
+            int offset = address & PAGE_MASK;
+            int n = Math.min(length, PAGE_SIZE - offset);
+            short[] page = pages[index];
+            if(page == null) page = allocate(index);
+            words.get(page, offset, n);
+            address += n;
+            length -= n;
         }
     }
+
+    private short[] allocate(int index){
+        short[] page = new short[PAGE_SIZE];
+        pages[index] = page;
+        touched[touchedCount++] = index;
+        return page;
+    }
+
+    /**
+     * @return Number of pages currently allocated
+     */
+    public int allocatedPages(){
+        return touchedCount;
+    }
+
+    /**
+     * Index of the i-th allocated page, i below allocatedPages()
+     */
+    int allocatedPage(int i){
+        return touched[i];
+    }
+
+    /**
+     * Words of a page, null if it was never written
+     */
+    short[] page(int index){
+        return pages[index];
+    }
+
+    /**
+     * Overwrite a whole page, allocating it if needed
+     */
+    void loadPage(int index, short[] words){
+        if(listener != null) listener.replacing();
+        short[] page = pages[index];
+        if(page == null) page = allocate(index);
+        System.arraycopy(words, 0, page, 0, PAGE_SIZE);
+    }
+
     /**
      * Reset the Memory
      */
     public void Reset(){
-        for(int i=0;i<KB2;i++){
-            data[i] = 0;
+        if(listener != null) listener.replacing();
+        for(int i=0;i<touchedCount;i++){
+            pages[touched[i]] = null;
+        }
+        touchedCount = 0;
+    }
+
+    /**
+     * Copy of every installed word, mainly for display and debugging
+     */
+    public short[] toArray(){
+        short[] copy = new short[size];
+        for(int i=0;i<touchedCount;i++){
+            int start = touched[i] << PAGE_BITS;
+            System.arraycopy(pages[touched[i]], 0, copy, start, Math.min(PAGE_SIZE, size - start));
         }
+        return copy;
     }
 }
@@ -0,0 +1,20 @@
+package com.csa.simulator.components;
+
+/**
+ * MemoryListener Interface - Observer of the writes made to a Memory, e.g. a Journal.
+ * Single-word writes are reported one by one; bulk loads and resets are only announced.
+ */
+public interface MemoryListener {
+    /**
+     * Called before a single word is written
+     * @param address Address being written
+     * @param old     Value the word holds now
+     * @param value   Value being written
+     */
+    void writing(int address, short old, short value);
+
+    /**
+     * Called before a reset or bulk load replaces many words at once
+     */
+    void replacing();
+}
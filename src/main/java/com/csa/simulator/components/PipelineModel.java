@@ -0,0 +1,135 @@
+package com.csa.simulator.components;
+
+import java.util.Arrays;
+
+/**
+ * PipelineModel Class - Timing model of a classic 5-stage IF/ID/EX/MEM/WB pipeline, driven
+ * by the instructions the functional simulator retires (attach it as a Machine probe).
+ *
+ * Instructions issue in order, one per cycle, and are held in ID until their source
+ * registers (R0-R3, X1-X3, from DecodedInstruction.reads) are ready:
+ * <ul>
+ *     <li>With forwarding an ALU result reaches the next instruction's EX without a stall,
+ *     a loaded value (LDR, LDX, AMR, SMR) one cycle later: the load-use stall.</li>
+ *     <li>Without forwarding every result is read in ID during its producer's WB, two cycles
+ *     after the producer's EX.</li>
+ *     <li>Jumps resolve in EX with not-taken prediction, so a taken jump (or a fault that
+ *     redirects the PC) flushes the two instructions behind it.</li>
+ *     <li>An indirect address takes one extra memory access.</li>
+ * </ul>
+ * Only the state of seven registers is kept, so the model costs a few array operations
+ * per instruction.
+ */
+public class PipelineModel implements ExecutionProbe {
+    /** Stages from IF to EX, and from EX to WB **/
+    static final int FRONT = 2, BACK = 2;
+    /** Cycles lost to a taken jump **/
+    public static final int FLUSH_PENALTY = 2;
+
+    /** Forward results from EX/MEM and MEM/WB to EX **/
+    public final boolean forwarding;
+    public long instructions;
+    /** Stall cycles by cause **/
+    public long rawStalls, loadUseStalls, flushCycles, indirectCycles;
+    public long takenJumps;
+
+    /** Per register, by CPU.DIRTY_* bit: first cycle its value can enter EX, shifted left once, bit 0 set for a forwarded load **/
+    private final long[] ready = new long[7];
+    /** EX cycle of the last instruction, counting the first fetch as cycle 1 **/
+    private long ex;
+    /** Cycles the next instruction is delayed by a flush **/
+    private int bubble;
+
+    public PipelineModel(boolean forwarding) {
+        this.forwarding = forwarding;
+        reset();
+    }
+
+    /**
+     * Model attached to a machine, which interprets every instruction from now on
+     */
+    public static PipelineModel attach(Machine machine, boolean forwarding) {
+        PipelineModel p = new PipelineModel(forwarding);
+        machine.addProbe(p);
+        return p;
+    }
+
+    @Override
+    public void executed(CPU c, int pc) {
+        DecodedInstruction d = c.decoded.get(pc, c.IR);
+        int opcode = d.opcode();
+        instructions++;
+
+        long issue = ex + 1 + bubble;
+        bubble = 0;
+        long start = issue;
+        boolean loadUse = false;
+        for (int reads = d.reads(); reads != 0; reads &= reads - 1) {
+            int r = Integer.numberOfTrailingZeros(reads);
+            long t = ready[r] >> 1;
+            if (t > start) {
+                start = t;
+                loadUse = (ready[r] & 1) != 0;
+            }
+        }
+        if (start > issue) {
+            if (loadUse) loadUseStalls += start - issue;
+            else rawStalls += start - issue;
+        }
+        if (d.indirect()) {
+            start++;
+            indirectCycles++;
+        }
+        ex = start;
+
+        boolean load = opcode == CPU.LDR || opcode == CPU.LDX || opcode == CPU.AMR || opcode == CPU.SMR;
+        long available = forwarding ? ex + (load ? 2 : 1) : ex + BACK + 1;
+        long mark = available << 1 | (load && forwarding ? 1 : 0);
+        for (int writes = d.writes() & 0x7F; writes != 0; writes &= writes - 1)
+            ready[Integer.numberOfTrailingZeros(writes)] = mark;
+
+        // A taken jump flushes even when its target is the next word; a fault redirects the PC
+        boolean jump = opcode >= CPU.JZ && opcode <= CPU.JGE;
+        if (jump ? c.jumped : (c.PC & 0xFFFF) != pc + 1 && opcode != CPU.HLT) {
+            bubble = FLUSH_PENALTY;
+            flushCycles += FLUSH_PENALTY;
+            if (jump) takenJumps++;
+        }
+    }
+
+    /**
+     * @return Cycles from the first fetch to the last write back
+     */
+    public long cycles() {
+        return instructions == 0 ? 0 : ex + BACK;
+    }
+
+    /**
+     * @return Cycles per instruction
+     */
+    public double cpi() {
+        return instructions == 0 ? 0 : (double) cycles() / instructions;
+    }
+
+    public long stalls() {
+        return rawStalls + loadUseStalls + flushCycles + indirectCycles;
+    }
+
+    /**
+     * Start counting again from an empty pipeline
+     */
+    public void reset() {
+        instructions = rawStalls = loadUseStalls = flushCycles = indirectCycles = takenJumps = 0;
+        ex = FRONT;
+        bubble = 0;
+        Arrays.fill(ready, 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d instructions, %d cycles, CPI %.3f (forwarding %s)%n"
+                        + "Stall cycles: %d RAW, %d load-use, %d flush (%d taken jumps), %d indirect%n",
+                instructions, cycles(), cpi(), forwarding ? "on" : "off",
+                rawStalls, loadUseStalls, flushCycles, takenJumps, indirectCycles);
+    }
+}
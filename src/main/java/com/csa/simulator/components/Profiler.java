@@ -0,0 +1,190 @@
+package com.csa.simulator.components;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profiler Class - Execution profile of a guest program, attached as a Machine probe.
+ * Records how often each address executed, an opcode histogram and, for the jump family,
+ * how often each jump was taken. Calls are followed through JSR and RFS to build a call
+ * tree, exported in the collapsed-stack format flame graph tools read.
+ *
+ * Counters are plain long arrays indexed by address and opcode. With no probe attached
+ * Machine pays one null check per instruction.
+ */
+public class Profiler implements ExecutionProbe {
+    /** Deepest call stack followed, deeper calls are charged to the frame at this depth **/
+    public static final int MAX_DEPTH = 256;
+
+    /** Executions per address **/
+    public final long[] counts;
+    /** Executions per opcode **/
+    public final long[] opcodes = new long[64];
+    /** Taken jumps per address, for JZ ... JGE **/
+    public final long[] taken;
+    public long instructions;
+
+    /**
+     * Node of the call tree, one per distinct call path
+     */
+    static final class Frame {
+        final int entry;
+        final Frame caller;
+        /** Instructions executed in this routine itself **/
+        long self;
+        final Map<Integer, Frame> callees = new HashMap<>();
+
+        Frame(int entry, Frame caller) {
+            this.entry = entry;
+            this.caller = caller;
+        }
+    }
+
+    private Frame root;
+    private Frame current;
+    private int depth;
+    /** Calls past MAX_DEPTH not pushed, whose returns must not pop a frame **/
+    private int overflow;
+
+    /**
+     * @param size Number of memory words profiled, usually Memory.size
+     */
+    public Profiler(int size) {
+        counts = new long[size];
+        taken = new long[size];
+    }
+
+    /**
+     * Profiler attached to a machine, which interprets every instruction from now on
+     */
+    public static Profiler attach(Machine machine) {
+        Profiler p = new Profiler(machine.memory.size);
+        machine.addProbe(p);
+        return p;
+    }
+
+    @Override
+    public void executed(CPU c, int pc) {
+        int opcode = (c.IR >>> 10) & 0x3F;
+        int next = c.PC & 0xFFFF;
+        instructions++;
+        counts[pc]++;
+        opcodes[opcode]++;
+        if (current == null) current = root = new Frame(pc, null);
+        current.self++;
+        if (opcode >= CPU.JZ && opcode <= CPU.JGE) {
+            if (c.jumped) taken[pc]++;
+            if (opcode == CPU.JSR) call(next);
+            else if (opcode == CPU.RFS) ret();
+        }
+    }
+
+    private void call(int entry) {
+        if (depth >= MAX_DEPTH) {
+            overflow++;
+            return;
+        }
+        Frame caller = current;
+        current = caller.callees.computeIfAbsent(entry, e -> new Frame(e, caller));
+        depth++;
+    }
+
+    private void ret() {
+        if (overflow > 0) {
+            overflow--;
+            return;
+        }
+        if (depth == 0) return;
+        current = current.caller;
+        depth--;
+    }
+
+    /**
+     * Clear every counter and the call tree
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(opcodes, 0);
+        Arrays.fill(taken, 0);
+        instructions = 0;
+        root = current = null;
+        depth = overflow = 0;
+    }
+
+    /**
+     * Hottest addresses first, then the opcode histogram and the jumps with their taken ratio
+     * @param limit Most addresses listed
+     */
+    public String report(int limit, Memory memory) {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%d instructions%n%nHotspots%n%-8s %-6s %14s %7s%n",
+                instructions, "Address", "Op", "Count", "%"));
+        for (int a : hottest(limit))
+            b.append(String.format("%-8s %-6s %14d %6.2f%%%n", hex(a), Assembler.mnemonic((memory.fetch(a) >>> 10) & 0x3F),
+                    counts[a], percent(counts[a])));
+
+        b.append(String.format("%nOpcodes%n"));
+        Integer[] ops = new Integer[64];
+        for (int i = 0; i < ops.length; i++) ops[i] = i;
+        Arrays.sort(ops, (x, y) -> Long.compare(opcodes[y], opcodes[x]));
+        for (int op : ops)
+            if (opcodes[op] > 0)
+                b.append(String.format("%-6s %14d %6.2f%%%n", Assembler.mnemonic(op), opcodes[op], percent(opcodes[op])));
+
+        b.append(String.format("%nJumps%n%-8s %-6s %14s %14s%n", "Address", "Op", "Taken", "Not taken"));
+        for (int a = 0; a < counts.length; a++) {
+            if (counts[a] == 0) continue;
+            int op = (memory.fetch(a) >>> 10) & 0x3F;
+            if (op >= CPU.JZ && op <= CPU.JGE)
+                b.append(String.format("%-8s %-6s %14d %14d%n", hex(a), Assembler.mnemonic(op), taken[a],
+                        counts[a] - taken[a]));
+        }
+        return b.toString();
+    }
+
+    /**
+     * @return Up to limit executed addresses, most executed first
+     */
+    public int[] hottest(int limit) {
+        int n = 0;
+        for (long count : counts) if (count > 0) n++;
+        Integer[] hot = new Integer[n];
+        n = 0;
+        for (int a = 0; a < counts.length; a++) if (counts[a] > 0) hot[n++] = a;
+        Arrays.sort(hot, (x, y) -> Long.compare(counts[y], counts[x]));
+        int[] top = new int[Math.min(limit, hot.length)];
+        for (int i = 0; i < top.length; i++) top[i] = hot[i];
+        return top;
+    }
+
+    /**
+     * Write one line per call path, "entry;callee;... self-count", each routine named by its
+     * entry address: the collapsed-stack input of flamegraph.pl and similar tools
+     */
+    public void writeCollapsed(Appendable out) throws IOException {
+        if (root == null) return;
+        List<Frame> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Frame f = pending.remove(pending.size() - 1);
+            if (f.self > 0) out.append(stack(f)).append(' ').append(Long.toString(f.self)).append('\n');
+            pending.addAll(f.callees.values());
+        }
+    }
+
+    private static String stack(Frame f) {
+        return f.caller == null ? hex(f.entry) : stack(f.caller) + ";" + hex(f.entry);
+    }
+
+    private double percent(long count) {
+        return instructions == 0 ? 0 : 100.0 * count / instructions;
+    }
+
+    private static String hex(int address) {
+        return String.format("0x%04x", address);
+    }
+}
@@ -0,0 +1,198 @@
+package com.csa.simulator.components;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ProgramLoader Class - Loads programs into Memory from IPL text files or binary images.
+ *
+ * The IPL text format is pairs of hex words, "address value", separated by whitespace.
+ * It is parsed straight from the channel's bytes, without Scanner or per-token strings.
+ *
+ * A binary image holds runs of consecutive words, each copied into memory in bulk:
+ * magic "CSAI", version, number of words the image needs, segment count, then for each
+ * segment its start address, its length and that many big-endian words.
+ *
+ * Both formats reject addresses outside the installed memory with an IOException.
+ */
+public final class ProgramLoader {
+    static final int IMAGE_MAGIC = 0x43534149; // "CSAI"
+    static final short IMAGE_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 4;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private ProgramLoader() {
+    }
+
+    /**
+     * Load an IPL text file or binary image, telling them apart by the image magic number
+     * @return Number of words loaded
+     */
+    public static int load(Path file, Memory memory) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && ch.read(magic) >= 0) ;
+            ch.position(0);
+            if (!magic.hasRemaining() && magic.getInt(0) == IMAGE_MAGIC)
+                return loadImage(ch, memory);
+            return loadHex(ch, memory);
+        }
+    }
+
+    /**
+     * Load an IPL text or binary image held in memory, e.g. received over the network
+     * @return Number of words loaded
+     */
+    public static int load(byte[] program, Memory memory) throws IOException {
+        ReadableByteChannel ch = Channels.newChannel(new ByteArrayInputStream(program));
+        if (program.length >= 4 && ByteBuffer.wrap(program).getInt() == IMAGE_MAGIC)
+            return loadImage(ch, memory);
+        return loadHex(ch, memory);
+    }
+
+    /**
+     * Parse "address value" hex pairs from a channel into memory
+     * @return Number of words loaded
+     */
+    public static int loadHex(ReadableByteChannel ch, Memory memory) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        int token = 0, digits = 0, address = -1, line = 1, count = 0;
+        while (true) {
+            buf.clear();
+            boolean eof = ch.read(buf) < 0;
+            buf.flip();
+            int limit = eof ? buf.limit() + 1 : buf.limit();
+            for (int i = 0; i < limit; i++) {
+                // A virtual trailing newline at end of input closes the last token
+                int c = i < buf.limit() ? buf.get(i) : '\n';
+                int d = Character.digit(c, 16);
+                if (d >= 0) {
+                    if (++digits > 4) throw new IOException("line " + line + ": more than 4 hex digits in a word");
+                    token = token << 4 | d;
+                    continue;
+                }
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n')
+                    throw new IOException("line " + line + ": unexpected character '" + (char) c + "'");
+                if (digits > 0) {
+                    if (address < 0) {
+                        if (token >= memory.size)
+                            throw new IOException("line " + line + ": address " + hex(token)
+                                    + " is outside the " + memory.size + " word memory");
+                        address = token;
+                    } else {
+                        memory.write(address, (short) token);
+                        count++;
+                        address = -1;
+                    }
+                    token = digits = 0;
+                }
+                if (c == '\n') line++;
+            }
+            if (eof) break;
+        }
+        if (address >= 0) throw new IOException("address " + hex(address) + " has no value");
+        return count;
+    }
+
+    /**
+     * Copy the segments of a binary image from a channel into memory
+     * @return Number of words loaded
+     */
+    public static int loadImage(ReadableByteChannel ch, Memory memory) throws IOException {
+        ByteBuffer header = readFully(ch, ByteBuffer.allocate(HEADER_BYTES));
+        if (header.getInt() != IMAGE_MAGIC) throw new IOException("Not a program image");
+        short version = header.getShort();
+        if (version != IMAGE_VERSION) throw new IOException("Unsupported program image version " + version);
+        int extent = header.getInt();
+        if (extent < 0) throw new IOException("Negative image extent " + extent);
+        if (extent > memory.size)
+            throw new IOException("Image needs " + extent + " words, memory has " + memory.size);
+        int segments = header.getInt();
+        if (segments < 0) throw new IOException("Negative segment count " + segments);
+        ByteBuffer seg = ByteBuffer.allocate(8);
+        ByteBuffer words = ByteBuffer.allocate(Math.min(extent, BUFFER_BYTES) * 2);
+        int count = 0;
+        for (int s = 0; s < segments; s++) {
+            seg.clear();
+            readFully(ch, seg);
+            int start = seg.getInt(), length = seg.getInt();
+            if (start < 0 || length < 0 || (long) start + length > extent)
+                throw new IOException("Segment " + s + " at " + hex(start) + " of " + length
+                        + " words is outside the " + extent + " word image");
+            if (words.capacity() < length * 2) words = ByteBuffer.allocate(length * 2);
+            words.clear().limit(length * 2);
+            readFully(ch, words);
+            memory.write(start, words.asShortBuffer());
+            count += length;
+        }
+        return count;
+    }
+
+    /**
+     * Write every non-zero page of memory as a binary image, adjacent pages sharing a segment
+     */
+    public static void writeImage(Memory memory, WritableByteChannel ch) throws IOException {
+        int[] pages = new int[memory.allocatedPages()];
+        int n = 0;
+        for (int i = 0; i < pages.length; i++) {
+            int index = memory.allocatedPage(i);
+            for (short w : memory.page(index))
+                if (w != 0) {
+                    pages[n++] = index;
+                    break;
+                }
+        }
+        pages = Arrays.copyOf(pages, n);
+        Arrays.sort(pages);
+
+        int segments = 0, words = 0, extent = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || pages[i] != pages[i - 1] + 1) segments++;
+            int start = pages[i] << Memory.PAGE_BITS;
+            int length = Math.min(Memory.PAGE_SIZE, memory.size - start);
+            words += length;
+            extent = start + length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + segments * 8 + words * 2);
+        b.putInt(IMAGE_MAGIC).putShort(IMAGE_VERSION).putInt(extent).putInt(segments);
+        for (int i = 0; i < n; ) {
+            int j = i + 1;
+            while (j < n && pages[j] == pages[j - 1] + 1) j++;
+            int start = pages[i] << Memory.PAGE_BITS;
+            int end = Math.min(pages[j - 1] + 1 << Memory.PAGE_BITS, memory.size);
+            b.putInt(start).putInt(end - start);
+            for (int a = start; a < end; a++) b.putShort(memory.fetch(a));
+            i = j;
+        }
+        b.flip();
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    /**
+     * Write every non-zero page of memory to an image file, replacing it
+     */
+    public static void writeImage(Memory memory, Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeImage(memory, ch);
+        }
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining())
+            if (ch.read(b) < 0) throw new IOException("Program image truncated");
+        return b.flip();
+    }
+
+    private static String hex(int value) {
+        return String.format("0x%04X", value);
+    }
+}
@@ -0,0 +1,27 @@
+package com.csa.simulator.components;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SnapshotMailbox Class - Lock-free single-slot hand-off of MachineSnapshots from the
+ * execution thread to the display.
+ * A new snapshot replaces one the display has not taken yet, inheriting its dirty bits,
+ * so the reader only ever renders the latest state and never misses a changed register.
+ */
+public final class SnapshotMailbox {
+    private final AtomicReference<MachineSnapshot> slot = new AtomicReference<>();
+
+    /**
+     * Publish a snapshot, replacing any the reader has not taken
+     */
+    public void publish(MachineSnapshot snapshot) {
+        slot.accumulateAndGet(snapshot, (old, s) -> old == null ? s : s.mergeDirty(old));
+    }
+
+    /**
+     * @return The latest snapshot, or null if nothing was published since the last take
+     */
+    public MachineSnapshot take() {
+        return slot.getAndSet(null);
+    }
+}
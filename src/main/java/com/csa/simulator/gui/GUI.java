@@ -8,7 +8,7 @@ import java.io.IOException;
 import java.util.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
@@ -24,13 +24,55 @@ public class GUI extends JFrame {
     private JLabel haltLabel;
     private JLabel runLabel;
     private JButton[] loadButtons;
+    /** LED rows indexed like the CPU dirty mask **/
+    private LEDUpdater[] leds;
     private CPU cpu;
     private Memory memory;
     private File file;
     private Devices devices;
+    private Machine machine;
+    /** Reverse execution history for the SB button, null unless -Dsimulator.journal is set */
+    private Journal journal;
     char[] switchArray;
     boolean isProgram1Loaded = false;
 
+    /**
+     * How the Run button executes a program
+     */
+    enum RunMode {
+        MAX_SPEED("Max speed"), TARGET_IPS("Target IPS"), SINGLE_STEP("Single step");
+
+        private final String label;
+
+        RunMode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Display refreshes per second while a program runs */
+    private static final int FRAME_RATE = 30;
+    /** Instructions between clock checks at max speed */
+    private static final int BATCH = 10_000;
+    private JComboBox<RunMode> runMode;
+    private JTextField ipsField;
+    /** Breakpoint list, see Breakpoints.parse, and the text last applied from it */
+    private JTextField breaksField;
+    private String appliedBreaks = "";
+    private JLabel speedLabel;
+    private JButton runButton;
+    /** True while RunProg is executing, cleared to stop it; handlers that touch the machine do nothing while set */
+    private volatile boolean running;
+    /** Snapshots published by the run thread, drained by frameTimer on the EDT */
+    private final SnapshotMailbox mailbox = new SnapshotMailbox();
+    private javax.swing.Timer frameTimer;
+    /** Snapshot the LEDs and cache panel show, EDT only */
+    private MachineSnapshot shown;
+
     /**
      * Start position for vertical alignment
      */
@@ -45,8 +87,12 @@ public class GUI extends JFrame {
         haltLabel = new JLabel();
         runLabel = new JLabel();
         devices = new Devices();
-        cpu = new CPU(devices);
-        memory = new Memory();
+        machine = new Machine(devices);
+        cpu = machine.cpu;
+        memory = machine.memory;
+        shown = MachineSnapshot.capture(machine, CPU.DIRTY_ALL, 0, 0);
+        startCacheTrace();
+        startJournal();
 
         switchArray = new char[16];
         Arrays.fill(switchArray, (char) 0);
@@ -61,6 +107,7 @@ public class GUI extends JFrame {
         pcLabels = new JLabel[12];
         marLabels = new JLabel[12];
         mfrLabels = new JLabel[4];
+        leds = createLEDRows();
     }
 
     /**
@@ -297,9 +344,11 @@ public class GUI extends JFrame {
     }
 
     /**
-     * Method to reset the halt label's background color to black.
+     * Method to clear the halt status so Run continues past the HLT, and reset the halt label.
      */
     private void resetHalt(ActionEvent e) {
+        if (running) return;
+        machine.clearHalt();
         haltLabel.setBackground(Color.white);
     }
 
@@ -307,84 +356,100 @@ public class GUI extends JFrame {
      * Method to reset the CPU, clear devices, refresh LEDs, and reset halt state.
      */
     private void resetAll(ActionEvent e) {
+        if (running) return;
         // Reset the CPU and memory state.
-        cpu.Reset(memory);
+        machine.reset();
 
         // Clear the console output for devices.
         devices.emptyConsole();
 
-        // Refresh the LEDs from 0 to 10 (assuming there are 11 LEDs).
-        for (int ledIndex = 0; ledIndex < 11; ledIndex++) {
-            refreshLEDs(ledIndex);
-        }
+        // Reset marks every register dirty, so this refreshes all LED rows.
+        render(MachineSnapshot.capture(machine, cpu.takeDirty(), 0, 0));
 
         // Reset the halt label's state by invoking resetHalt method.
         resetHalt(e);
     }
 
     /**
-     * Method to refresh LEDs.
+     * Method to refresh LEDs after the front panel changed a register directly.
+     * Only the labels of bits that changed since the row was last painted are touched.
      */
     private void refreshLEDs(int onKeyStroke) {
-        Color isTurnedOn = Color.green;
-        Color isTurnedOff = Color.white;
-
-        // Map of keystrokes to CPU register arrays and ranges
-        Map<Integer, LEDUpdater> updaterMap = Map.of(
-                0, new LEDUpdater(cpu.GPR0, gpr0Arr, 16),
-                1, new LEDUpdater(cpu.GPR1, gpr1Arr, 16),
-                2, new LEDUpdater(cpu.GPR2, gpr2Arr, 16),
-                3, new LEDUpdater(cpu.GPR3, gpr3Arr, 16),
-                4, new LEDUpdater(cpu.X1, ixrLabels[0], 16),
-                5, new LEDUpdater(cpu.X2, ixrLabels[1], 16),
-                6, new LEDUpdater(cpu.X3, ixrLabels[2], 16),
-                9, new LEDUpdater(cpu.MBR, mbrLabels, 16),
-                10, new LEDUpdater(cpu.IR, irLabels, 16)
-        );
-
-        if (updaterMap.containsKey(onKeyStroke)) {
-            updaterMap.get(onKeyStroke).updateLEDs(isTurnedOn, isTurnedOff);
-        } else {
-            switch (onKeyStroke) {
-                case 7: // Special case for PC
-                    updateSpecialLEDs(cpu.PC, pcLabels, 12, Color.yellow, isTurnedOff);
-                    break;
-                case 8: // Special case for MAR
-                    updateSpecialLEDs(cpu.MAR, marLabels, 12, Color.orange, isTurnedOff);
-                    break;
-                case 11: // Special case for MFR
-                    updateSpecialLEDs(cpu.MFR, mfrLabels, 4, Color.red, isTurnedOff);
-                    break;
-                default:
-                    // Do nothing for unsupported keystrokes
-                    break;
-            }
+        if (onKeyStroke >= 0 && onKeyStroke < leds.length) {
+            shown = MachineSnapshot.capture(machine, 0, 0, 0);
+            leds[onKeyStroke].paint();
         }
     }
 
-    private void updateSpecialLEDs(char[] register, JLabel[] labels, int range, Color isTurnedOn, Color isTurnedOff) {
-        IntStream.range(0, range).forEach(i -> {
-            labels[i].setBackground(register[i] == 1 ? isTurnedOn : isTurnedOff);
-            labels[i].setText(register[i] == 1 ? " 1" : " 0");
-        });
+    /**
+     * Show a snapshot: the LED rows it marks dirty and the cache panel
+     */
+    private void render(MachineSnapshot snapshot) {
+        shown = snapshot;
+        refreshDirtyLEDs(snapshot.dirty());
+        devices.printCache(snapshot.cache());
+    }
+
+    /**
+     * Repaint the rows named by a CPU dirty mask, bit i being LED row i
+     */
+    private void refreshDirtyLEDs(int dirtyMask) {
+        for (int mask = dirtyMask & CPU.DIRTY_ALL; mask != 0; mask &= mask - 1) {
+            leds[Integer.numberOfTrailingZeros(mask)].paint();
+        }
     }
 
+    /**
+     * LED rows in CPU dirty bit order: R0-R3, X1-X3, PC, MAR, MBR, IR, MFR
+     */
+    private LEDUpdater[] createLEDRows() {
+        Color on = Color.green;
+        return new LEDUpdater[]{
+                new LEDUpdater(new BitView(() -> shown.R0(), 16), gpr0Arr, on),
+                new LEDUpdater(new BitView(() -> shown.R1(), 16), gpr1Arr, on),
+                new LEDUpdater(new BitView(() -> shown.R2(), 16), gpr2Arr, on),
+                new LEDUpdater(new BitView(() -> shown.R3(), 16), gpr3Arr, on),
+                new LEDUpdater(new BitView(() -> shown.X1(), 16), ixrLabels[0], on),
+                new LEDUpdater(new BitView(() -> shown.X2(), 16), ixrLabels[1], on),
+                new LEDUpdater(new BitView(() -> shown.X3(), 16), ixrLabels[2], on),
+                new LEDUpdater(new BitView(() -> shown.PC(), 12), pcLabels, Color.yellow),
+                new LEDUpdater(new BitView(() -> shown.MAR(), 12), marLabels, Color.orange),
+                new LEDUpdater(new BitView(() -> shown.MBR(), 16), mbrLabels, on),
+                new LEDUpdater(new BitView(() -> shown.IR(), 16), irLabels, on),
+                new LEDUpdater(new BitView(() -> shown.MFR(), 4), mfrLabels, Color.red)
+        };
+    }
+
+    /**
+     * One row of LEDs and the value it last showed
+     */
     static class LEDUpdater {
-        private final char[] register;
+        private final BitView register;
         private final JLabel[] labels;
-        private final int range;
+        private final Color isTurnedOn;
+        /** Value on screen, -1 until the first paint **/
+        private int shown = -1;
 
-        public LEDUpdater(char[] register, JLabel[] labels, int range) {
+        public LEDUpdater(BitView register, JLabel[] labels, Color isTurnedOn) {
             this.register = register;
             this.labels = labels;
-            this.range = range;
+            this.isTurnedOn = isTurnedOn;
         }
 
-        public void updateLEDs(Color isTurnedOn, Color isTurnedOff) {
-            IntStream.range(0, range).forEach(i -> {
-                labels[i].setBackground(register[i] == 1 ? isTurnedOn : isTurnedOff);
-                labels[i].setText(register[i] == 1 ? " 1" : " 0");
-            });
+        /**
+         * Update the labels of the bits that flipped since the last paint
+         */
+        public void paint() {
+            int value = register.value();
+            int width = register.width();
+            for (int flipped = (value ^ shown) & ((1 << width) - 1); flipped != 0; flipped &= flipped - 1) {
+                int bit = Integer.numberOfTrailingZeros(flipped);
+                boolean set = (value >>> bit & 1) == 1;
+                JLabel label = labels[width - 1 - bit];
+                label.setBackground(set ? isTurnedOn : Color.white);
+                label.setText(set ? " 1" : " 0");
+            }
+            shown = value;
         }
     }
 
@@ -392,6 +457,7 @@ public class GUI extends JFrame {
      * Method to load the button and perform the corresponding action.
      */
     private void loadButton(ActionEvent e) {
+        if (running) return;
         JButton j = (JButton) e.getSource();
         int buttonPress = IntStream.range(0, 10)
                 .filter(i -> j == loadButtons[i])
@@ -399,21 +465,21 @@ public class GUI extends JFrame {
 
         if (buttonPress != -1) {
             // Map of button presses to actions
-            Map<Integer, Consumer<char[]>> buttonActionMap = Map.of(
-                    0, (arr) -> cpu.setGPR0(cpu.BinaryToDecimal(arr, 16)),
-                    1, (arr) -> cpu.setGPR1(arr, 16),
-                    2, (arr) -> cpu.setGPR2(arr, 16),
-                    3, (arr) -> cpu.setGPR3(arr, 16),
-                    4, (arr) -> cpu.setX1(arr, 16),
-                    5, (arr) -> cpu.setX2(arr, 16),
-                    6, (arr) -> cpu.setX3(arr, 16),
-                    7, (arr) -> cpu.setPC(cpu.BinaryToDecimal(arr, 16)),
-                    8, (arr) -> cpu.setMAR(cpu.BinaryToDecimal(arr, 16)),
-                    9, (arr) -> cpu.setMBR(arr, 16)
+            Map<Integer, Consumer<Short>> buttonActionMap = Map.of(
+                    0, cpu::setGPR0,
+                    1, cpu::setGPR1,
+                    2, cpu::setGPR2,
+                    3, cpu::setGPR3,
+                    4, cpu::setX1,
+                    5, cpu::setX2,
+                    6, cpu::setX3,
+                    7, cpu::setPC,
+                    8, cpu::setMAR,
+                    9, cpu::setMBR
             );
 
             // Perform the corresponding action
-            buttonActionMap.getOrDefault(buttonPress, arr -> {}).accept(switchArray);
+            buttonActionMap.getOrDefault(buttonPress, value -> {}).accept(cpu.BinaryToDecimal(switchArray, 16));
 
             // Refresh the LEDs
             refreshLEDs(buttonPress);
@@ -443,19 +509,20 @@ public class GUI extends JFrame {
      * @param e ActionEvent object
      */
     private void Store(ActionEvent e) {
+        if (running) return;
         try {
             System.out.println("Store Invoked");
-            short EA = cpu.BinaryToDecimal(cpu.MAR, 12);
-            if ((EA >= 0 && EA <= 5)) {
-                cpu.MFR[3] = 1;
+            short EA = cpu.MAR;
+            if ((EA & 0xFFFF) <= 5) {
+                cpu.MFR |= CPU.MF_RESERVED_ADDRESS;
                 refreshLEDs(11);
                 cpu.MFHandle(memory);
                 return;
             }
-            short value = cpu.BinaryToDecimal(cpu.MBR, 16);
-            memory.data[EA] = value;
+            memory.write(EA & 0xFFFF, cpu.MBR);
+            cpu.decoded.invalidate(EA & 0xFFFF);
         } catch (Exception ee) {
-            cpu.MFR[0] = 1;
+            cpu.MFR |= CPU.MF_ILLEGAL_ADDRESS;
             refreshLEDs(11);
         }
     }
@@ -465,27 +532,28 @@ public class GUI extends JFrame {
      * @param e ActionEvent object
      */
     private void StorePlus(ActionEvent e) {
+        if (running) return;
         /*
          * This will store the memory and print to the screen that the store was
          * successful
          */
         // MAR is incremented here after storing
         System.out.println("Store+ Invoked");
-        short EA = cpu.BinaryToDecimal(cpu.MAR, 12);
-        if ((EA >= 0 && EA <= 9)) {
-            cpu.MFR[3] = 1;
+        short EA = cpu.MAR;
+        if ((EA & 0xFFFF) <= 9) {
+            cpu.MFR |= CPU.MF_RESERVED_ADDRESS;
             refreshLEDs(11);
             cpu.MFHandle(memory);
             return;
         }
-        short value = cpu.BinaryToDecimal(cpu.MBR, 16);
         try {
-            memory.data[EA] = value;
+            memory.write(EA & 0xFFFF, cpu.MBR);
+            cpu.decoded.invalidate(EA & 0xFFFF);
             EA++;
-            cpu.DecimalToBinary(EA, cpu.MAR, 12);
+            cpu.setMAR(EA);
             refreshLEDs(8);
         } catch (IndexOutOfBoundsException ioobe) {
-            cpu.MFR[0] = 1;
+            cpu.MFR |= CPU.MF_ILLEGAL_ADDRESS;
             refreshLEDs(11);
         }
     }
@@ -495,15 +563,15 @@ public class GUI extends JFrame {
      * @param e ActionEvent object
      */
     private void LoadValue(ActionEvent e) {
+        if (running) return;
         System.out.println("Load Invoked");
         try {
-            short EA = cpu.BinaryToDecimal(cpu.MAR, 12);
-            cpu.DecimalToBinary((short) memory.data[EA], cpu.MBR, 16);
+            cpu.MBR = memory.read(cpu.MAR & 0xFFFF);
             refreshLEDs(9);
         } catch (IndexOutOfBoundsException i) {
             JOptionPane.showMessageDialog(this, "Illegal Operation with memory Access", "Error",
                     JOptionPane.ERROR_MESSAGE);
-            cpu.MFR[0] = 1;
+            cpu.MFR |= CPU.MF_ILLEGAL_ADDRESS;
             refreshLEDs(11);
         }
     }
@@ -513,6 +581,7 @@ public class GUI extends JFrame {
      * @param e ActionEvent object
      */
     private void loadFile(ActionEvent e) {
+        if (running) return;
         JFileChooser fCh = new JFileChooser();
         fCh.setCurrentDirectory(new File(System.getProperty("user.dir")));
         int res = fCh.showOpenDialog(this);
@@ -530,27 +599,19 @@ public class GUI extends JFrame {
                 cpu.setPC((short) 48);
                 refreshLEDs(7);
                 ProcessFile();
-            } catch (FileNotFoundException fileNotFoundException) {
-                System.out.println(fileNotFoundException.getMessage());
+            } catch (IOException ioException) {
+                JOptionPane.showMessageDialog(this, ioException.getMessage(), "Error: Program Load",
+                        JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
     /**
      * Method to process the file.
-     * @throws FileNotFoundException if the file is not found
+     * @throws IOException if the file cannot be read or does not fit in memory
      */
-    private void ProcessFile() throws FileNotFoundException {
-        Scanner s = new Scanner(file);
-        while (s.hasNext()) {
-            String loc = s.next();
-            String val = s.next();
-            short hexloc = cpu.HexToDecimal(loc);
-            short hexval = cpu.HexToDecimal(val);
-            memory.data[hexloc] = hexval;
-            System.out.println(hexloc + " " + hexval);
-        }
-        s.close();
+    private void ProcessFile() throws IOException {
+        machine.load(file);
     }
 
     /**
@@ -558,59 +619,193 @@ public class GUI extends JFrame {
      * @param e ActionEvent object
      */
     private void execCode(ActionEvent e) {
-        for (int i = 0; i < 12; i++)
-            refreshLEDs(i);
-        short EA = cpu.BinaryToDecimal(cpu.PC, 12);
-        if (EA > 2047) {
-            cpu.MFR[0] = 1;
-            refreshLEDs(11);
-            cpu.MFHandle(memory);
-            memory.data[4]++;
-            cpu.DecimalToBinary(memory.data[4], cpu.PC, 12);
-            refreshLEDs(7);
-            return;
-        }
-        cpu.DecimalToBinary(memory.data[EA], cpu.IR, 16);
-        cpu.Execute(memory,devices);
+        if (running) return;
+        machine.step();
+        render(MachineSnapshot.capture(machine, cpu.takeDirty(), 1, 0));
+    }
 
-        for (int i = 0; i < 12; i++)
-            refreshLEDs(i);
-        short val = cpu.BinaryToDecimal(cpu.IR, 6); // Get The IR Values to check for Conditions for Jumping
-        if (val >= 0x08 && val <= 0x0F) {
-            EA = cpu.BinaryToDecimal(cpu.PC, 12);
-        } else if (cpu.BinaryToDecimal(cpu.MFR, 4) > 0) {
-            cpu.MFHandle(memory);
-            EA = memory.data[4];
-            EA++;
-        } else
-            EA++;
-        cpu.DecimalToBinary(EA, cpu.PC, 12);
-        refreshLEDs(7);
+    /**
+     * Method to undo the last executed instruction.
+     * @param e ActionEvent object
+     */
+    private void stepBack(ActionEvent e) {
+        if (running || !journal.stepBack()) return;
+        render(MachineSnapshot.capture(machine, cpu.takeDirty(), 0, 0));
     }
 
+    /**
+     * Journal every instruction when simulator.journal gives a history budget in KB, with a
+     * keyframe every simulator.journal.keyframes instructions. Run then interprets every
+     * instruction instead of running translated blocks.
+     */
+    private void startJournal() {
+        int kb = Integer.getInteger("simulator.journal", 0);
+        if (kb > 0)
+            journal = Journal.attach(machine, kb << 10, Integer.getInteger("simulator.journal.keyframes", 100_000));
+    }
 
     /**
-     * Method to run the program.
+     * Stream cache events to Cache.txt in the background. The simulator.cacheTrace property
+     * picks the level (ALL, MISSES, EVICTIONS or OFF) and simulator.cacheTrace.sample keeps
+     * only every n-th event.
+     */
+    private void startCacheTrace() {
+        CacheTrace.Level level = CacheTrace.Level.valueOf(
+                System.getProperty("simulator.cacheTrace", "ALL").toUpperCase(Locale.ROOT));
+        if (level == CacheTrace.Level.OFF) return;
+        try {
+            CacheTrace trace = new CacheTrace(Path.of("Cache.txt"));
+            trace.setLevel(level);
+            trace.setSampleEvery(Integer.getInteger("simulator.cacheTrace.sample", 1));
+            cpu.cache.trace = trace;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    trace.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Method to start the program from the Run button, on the EDT.
+     * Reads the run settings here so the run thread never touches Swing components.
      * @param e ActionEvent object
-     * @throws InterruptedException if the thread is interrupted
      */
-    private void RunProg(ActionEvent e) throws InterruptedException {
-        if (haltLabel.getBackground() == Color.red && runLabel.getBackground() == Color.black) {
+    private void startRun(ActionEvent e) {
+        if (running) {
+            running = false;
+            return;
+        }
+        if (machine.isHalted()) {
             JOptionPane.showMessageDialog(this, "System halted. Click on Reset Halt to reset the halt status",
                     "Error: System Halt", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        short OpCode;
-        do {
-            Thread.sleep(300);
+        if (!applyBreakpoints()) return;
+        RunMode mode = (RunMode) runMode.getSelectedItem();
+        if (mode == RunMode.SINGLE_STEP) {
             execCode(e);
-            haltLabel.setBackground(Color.white);
-            runLabel.setBackground(Color.getHSBColor(0.3f,0.5f,0.9f));
-            OpCode = cpu.BinaryToDecimal(cpu.IR, 16);
-        } while (OpCode != CPU.HLT);
+            return;
+        }
+        long ips = mode == RunMode.TARGET_IPS ? targetIps() : 0;
+        // Resume from a breakpoint or watchpoint stop; RunProg checks isStopped before running
+        machine.breakpoints.clearStop();
+        running = true;
+        runButton.setText("Stop");
+        haltLabel.setBackground(Color.white);
+        runLabel.setBackground(Color.getHSBColor(0.3f,0.5f,0.9f));
+        frameTimer.start();
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                RunProg(ips);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                finishRun();
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Set the machine's breakpoints from the Breaks field if its text changed
+     * @return false if the text does not parse
+     */
+    private boolean applyBreakpoints() {
+        String text = breaksField.getText().trim();
+        if (text.equals(appliedBreaks)) return true;
+        machine.breakpoints.clearAll();
+        appliedBreaks = "";
+        try {
+            machine.breakpoints.parse(text);
+            appliedBreaks = text;
+            return true;
+        } catch (IllegalArgumentException iae) {
+            machine.breakpoints.clearAll();
+            JOptionPane.showMessageDialog(this, iae.getMessage(), "Error: Breakpoints", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
+    /**
+     * Method to run the program.
+     * Executes in batches on the calling (worker) thread, either flat out or paced to the
+     * target IPS, and publishes a snapshot to the mailbox FRAME_RATE times a second.
+     * Stops when the machine halts or a breakpoint or watchpoint is hit.
+     * Never touches Swing; frameTimer renders the snapshots on the EDT.
+     * @param ips Target instructions per second, 0 for max speed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private void RunProg(long ips) throws InterruptedException {
+        long frameNanos = 1_000_000_000L / FRAME_RATE;
+        long start = System.nanoTime(), lastFrame = start;
+        long executed = 0, lastExecuted = 0;
+        double rate = 0;
+        try {
+            while (running && !machine.isHalted() && !machine.isStopped()) {
+                long frameEnd = System.nanoTime() + frameNanos;
+                if (ips == 0) {
+                    do {
+                        executed += machine.run(BATCH);
+                    } while (!machine.isHalted() && !machine.isStopped() && System.nanoTime() < frameEnd);
+                } else {
+                    // Catch up to the instruction count the target rate calls for, a frame's worth at most
+                    long due = (long) ((System.nanoTime() - start) * (ips / 1e9)) - executed;
+                    if (due > 0) executed += machine.run(Math.min(due, Math.max(1, ips / FRAME_RATE)));
+                    long sleep = frameEnd - System.nanoTime();
+                    if (sleep > 0) Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                }
+                long now = System.nanoTime();
+                rate = (executed - lastExecuted) * 1e9 / (now - lastFrame);
+                lastFrame = now;
+                lastExecuted = executed;
+                mailbox.publish(MachineSnapshot.capture(machine, cpu.takeDirty(), executed, rate));
+            }
+        } finally {
+            running = false;
+            mailbox.publish(MachineSnapshot.capture(machine, cpu.takeDirty(), executed, rate));
+        }
+    }
+
+    /**
+     * Render the latest published snapshot, if there is a new one. Runs on the EDT.
+     */
+    private void showFrame() {
+        MachineSnapshot snapshot = mailbox.take();
+        if (snapshot == null) return;
+        render(snapshot);
+        speedLabel.setText(String.format("%,.0f IPS", snapshot.rate()));
+    }
+
+    /**
+     * Stop the frame timer once the run thread is done and show its final state. Runs on the EDT.
+     */
+    private void finishRun() {
+        frameTimer.stop();
+        showFrame();
+        runButton.setText("Run");
         runLabel.setBackground(Color.white);
-        haltLabel.setBackground(Color.getHSBColor(1f,0.5f,0.9f));
+        if (machine.isStopped()) speedLabel.setText(machine.breakpoints.describeStop());
+        if (shown.halted()) haltLabel.setBackground(Color.getHSBColor(1f,0.5f,0.9f));
+    }
 
+    /**
+     * @return The target rate typed in the IPS field, at least 1
+     */
+    private long targetIps() {
+        try {
+            return Math.max(1, Long.parseLong(ipsField.getText().trim().replace(",", "")));
+        } catch (NumberFormatException nfe) {
+            return 1;
+        }
     }
 
     /**
@@ -702,17 +897,39 @@ public class GUI extends JFrame {
         ss.setBounds(380, start + 400, 65, 35);
         ss.addActionListener(this::execCode);
         JButton run = new JButton("Run");
+        runButton = run;
         run.setBounds(455, start + 400, 65, 35);
-        run.addActionListener(e -> {
-            SwingWorker<Void, Void> worker = new SwingWorker<>() {
-                @Override
-                protected Void doInBackground() throws Exception {
-                    RunProg(e);
-                    return null;
-                }
-            };
-            worker.execute();
-        });
+        run.addActionListener(this::startRun);
+        if (journal != null) {
+            JButton sb = new JButton("SB");
+            sb.setToolTipText("Step back one instruction");
+            sb.setBounds(305, start + 445, 70, 30);
+            sb.addActionListener(this::stepBack);
+            this.add(sb);
+        }
+        frameTimer = new javax.swing.Timer(1000 / FRAME_RATE, e -> showFrame());
+        runMode = new JComboBox<>(RunMode.values());
+        runMode.setBounds(380, start + 445, 140, 30);
+        this.add(runMode);
+        ipsField = new JTextField("1000");
+        ipsField.setToolTipText("Instructions per second in Target IPS mode");
+        ipsField.setBounds(530, start + 445, 70, 30);
+        this.add(ipsField);
+        JLabel ipsLabel = new JLabel("IPS");
+        ipsLabel.setBounds(605, start + 450, 30, 20);
+        this.add(ipsLabel);
+        JLabel breaksLabel = new JLabel("Breaks");
+        breaksLabel.setBounds(100, start + 450, 55, 20);
+        this.add(breaksLabel);
+        breaksField = new JTextField();
+        breaksField.setToolTipText("Hex addresses or ranges to stop at (40, 100-10F); r or w in front for a "
+                + "read or write watchpoint; :R0=5 or :[1A]=3 after one for a condition");
+        breaksField.setBounds(155, start + 445, 145, 30);
+        this.add(breaksField);
+        speedLabel = new JLabel("");
+        speedLabel.setBounds(640, start + 490, 200, 20);
+        speedLabel.setFont(new Font("Arial", Font.BOLD, 15));
+        this.add(speedLabel);
         run.setLayout(new FlowLayout(FlowLayout.CENTER, 0, 0));
 
         //Input Field
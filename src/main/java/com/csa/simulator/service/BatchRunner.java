@@ -0,0 +1,232 @@
+package com.csa.simulator.service;
+
+import com.csa.simulator.components.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * BatchRunner Class - Runs many independent programs in parallel on a ForkJoinPool.
+ * Every job gets its own Machine (CPU, Memory, Cache, decode cache, translator) and
+ * HeadlessDevices, and its own cache trace file if it asks for one, so jobs share no
+ * mutable state and throughput grows with the number of cores.
+ *
+ * A job stops when it halts, uses up its instruction budget or runs past its timeout.
+ * The timeout is checked every Machine.SLICE instructions, so a job overruns it by
+ * at most one slice.
+ *
+ * Command line: {@code BatchRunner [-budget n] [-timeout ms] [-threads n] [-trace dir] [-cycles file] program...}
+ */
+public final class BatchRunner implements AutoCloseable {
+    /**
+     * How a job ended
+     */
+    public enum Status { HALTED, BUDGET, TIMEOUT, FAILED }
+
+    /**
+     * One program to run
+     * @param name            Name shown in the report
+     * @param program         IPL file or binary image, started at Machine.IPL_START
+     * @param input           Characters queued on the console keyboard
+     * @param maxInstructions Instruction budget
+     * @param timeout         Wall clock limit
+     * @param cacheTrace      File to stream this job's cache events to, or null for none
+     * @param costs           Cycle costs for the simulated clock
+     */
+    public record Job(String name, Path program, String input, long maxInstructions, Duration timeout,
+                      Path cacheTrace, CycleModel costs) {
+        public Job(Path program, long maxInstructions, Duration timeout) {
+            this(program.getFileName().toString(), program, "", maxInstructions, timeout, null,
+                    CycleModel.defaults());
+        }
+    }
+
+    /**
+     * Outcome of one job
+     * @param instructions Instructions executed
+     * @param cycles       Simulated clock cycles, an estimate of the run time on the modelled hardware
+     * @param nanos        Wall clock time of the run, loading included
+     * @param output       Everything the program printed
+     * @param error        Why the job failed, null unless the status is FAILED
+     */
+    public record Result(String name, Status status, long instructions, long cycles, long nanos, String output,
+                         short PC, byte MFR, String error) {
+    }
+
+    /**
+     * Results of a batch, in job order
+     * @param wallNanos Wall clock time of the whole batch
+     */
+    public record Report(List<Result> results, long wallNanos) {
+        public long count(Status status) {
+            return results.stream().filter(r -> r.status() == status).count();
+        }
+
+        public long instructions() {
+            return results.stream().mapToLong(Result::instructions).sum();
+        }
+
+        public long cycles() {
+            return results.stream().mapToLong(Result::cycles).sum();
+        }
+
+        /**
+         * @return Instructions per second over all jobs
+         */
+        public double rate() {
+            return wallNanos == 0 ? 0 : instructions() * 1e9 / wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder();
+            b.append(String.format("%-24s %-8s %14s %14s %10s %6s %4s%n", "Job", "Status", "Instructions", "Cycles",
+                    "ms", "PC", "MFR"));
+            for (Result r : results) {
+                b.append(String.format("%-24s %-8s %14d %14d %10.1f %6s %4d%n", r.name(), r.status(), r.instructions(),
+                        r.cycles(), r.nanos() / 1e6, Integer.toHexString(r.PC() & 0xFFFF), r.MFR()));
+                if (r.error() != null) b.append("    ").append(r.error()).append('\n');
+            }
+            b.append(String.format("%d jobs: %d halted, %d out of budget, %d timed out, %d failed%n",
+                    results.size(), count(Status.HALTED), count(Status.BUDGET), count(Status.TIMEOUT),
+                    count(Status.FAILED)));
+            b.append(String.format("%d instructions (%d simulated cycles) in %.1f ms, %.0f instructions/s%n",
+                    instructions(), cycles(), wallNanos / 1e6, rate()));
+            return b.toString();
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Runner using every core
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism Number of jobs run at once
+     */
+    public BatchRunner(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Run every job and wait for all of them
+     */
+    public Report run(List<Job> jobs) {
+        long t0 = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>(jobs.size());
+        for (Job job : jobs) futures.add(pool.submit(() -> run(job)));
+        List<Result> results = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Batch interrupted", e);
+            } catch (ExecutionException e) {
+                results.add(failed(jobs.get(i), 0, e.getCause()));
+            }
+        }
+        return new Report(results, System.nanoTime() - t0);
+    }
+
+    /**
+     * Run one job on a machine of its own, on the calling thread
+     */
+    public static Result run(Job job) {
+        long t0 = System.nanoTime();
+        long deadline = t0 + job.timeout().toNanos();
+        HeadlessDevices devices = new HeadlessDevices(job.input());
+        Machine machine = new Machine(devices);
+        machine.cpu.setCosts(job.costs());
+        CacheTrace trace = null;
+        try {
+            machine.ipl(job.program().toFile());
+            if (job.cacheTrace() != null) {
+                trace = new CacheTrace(job.cacheTrace());
+                machine.cpu.cache.trace = trace;
+            }
+            long executed = machine.run(job.maxInstructions(), deadline);
+            Status status = status(machine, executed, job.maxInstructions());
+            if (trace != null) {
+                machine.cpu.cache.trace = null;
+                trace.close();
+            }
+            CPU c = machine.cpu;
+            return new Result(job.name(), status, executed, c.cycles(), System.nanoTime() - t0, devices.getOutput(),
+                    c.PC, c.MFR, null);
+        } catch (IOException | RuntimeException e) {
+            if (trace != null) {
+                try {
+                    trace.close();
+                } catch (IOException ignored) {
+                    // Already failing, report the first error
+                }
+            }
+            return failed(job, System.nanoTime() - t0, e);
+        }
+    }
+
+    /**
+     * Why Machine.run(maxInstructions, deadline) returned
+     */
+    public static Status status(Machine machine, long executed, long maxInstructions) {
+        if (machine.isHalted()) return Status.HALTED;
+        return executed >= maxInstructions ? Status.BUDGET : Status.TIMEOUT;
+    }
+
+    private static Result failed(Job job, long nanos, Throwable e) {
+        return new Result(job.name(), Status.FAILED, 0, 0, nanos, "", (short) 0, (byte) 0, String.valueOf(e));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        long budget = 100_000_000;
+        long timeout = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path traceDir = null;
+        CycleModel costs = CycleModel.defaults();
+        List<Path> programs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-budget" -> budget = Long.parseLong(args[++i]);
+                case "-timeout" -> timeout = Long.parseLong(args[++i]);
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-trace" -> traceDir = Path.of(args[++i]);
+                case "-cycles" -> costs = CycleModel.load(Path.of(args[++i]));
+                default -> programs.add(Path.of(args[i]));
+            }
+        }
+        if (programs.isEmpty()) {
+            System.err.println("Usage: BatchRunner [-budget n] [-timeout ms] [-threads n] [-trace dir] [-cycles file] program...");
+            System.exit(2);
+        }
+        List<Job> jobs = new ArrayList<>(programs.size());
+        for (int i = 0; i < programs.size(); i++) {
+            Path p = programs.get(i);
+            String name = p.getFileName().toString();
+            Path trace = traceDir == null ? null : traceDir.resolve(i + "-" + name + ".cache.txt");
+            jobs.add(new Job(name, p, "", budget, Duration.ofMillis(timeout), trace, costs));
+        }
+        Report report;
+        try (BatchRunner runner = new BatchRunner(threads)) {
+            report = runner.run(jobs);
+        }
+        System.out.print(report);
+        if (report.count(Status.FAILED) > 0) System.exit(1);
+    }
+}
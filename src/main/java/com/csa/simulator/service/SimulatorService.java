@@ -0,0 +1,243 @@
+package com.csa.simulator.service;
+
+import com.csa.simulator.components.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SimulatorService Class - Long-lived HTTP front end running one program per request.
+ * Requests are handled on virtual threads, each on a fresh headless Machine, so the JVM
+ * and the JIT stay warm across jobs while jobs stay isolated from each other.
+ *
+ * POST /run?budget=n&amp;timeout=ms&amp;input=text with an IPL text file or binary program image
+ * as the body loads it like the GUI's Load button, starts it at Machine.IPL_START and answers
+ * with JSON: the status (HALTED, BUDGET or TIMEOUT), instruction count, simulated cycles
+ * (priced by the service's CycleModel), time, registers,
+ * the memory words that differ from the loaded image, the console printer output and the
+ * cache counters. A program that cannot be loaded gets 400 with an error message; one that
+ * addresses memory outside the installed words takes a machine fault and still gets 200.
+ *
+ * GET /stats reports the jobs and instructions run since the service started.
+ *
+ * Command line: {@code SimulatorService [port] [cycle-cost-file]}, listening on the loopback interface only.
+ */
+public final class SimulatorService {
+    public static final int DEFAULT_PORT = 8080;
+    public static final long DEFAULT_BUDGET = 10_000_000;
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+    /** Largest program body accepted **/
+    static final int MAX_BODY = 1 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder instructions = new LongAdder();
+    /** Cycle costs used for every job **/
+    public volatile CycleModel costs = CycleModel.defaults();
+
+    /**
+     * @param address Address to listen on, port 0 picks a free one
+     */
+    public SimulatorService(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/run", this::handleRun);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, giving running ones up to delay seconds to finish
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Address the service is listening on
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    private void handleRun(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("Use POST with the program as the body"));
+                return;
+            }
+            Map<String, String> query;
+            long budget, timeout;
+            try {
+                query = query(exchange.getRequestURI().getRawQuery());
+                budget = Long.parseLong(query.getOrDefault("budget", String.valueOf(DEFAULT_BUDGET)));
+                timeout = Long.parseLong(query.getOrDefault("timeout", String.valueOf(DEFAULT_TIMEOUT_MS)));
+            } catch (NumberFormatException e) {
+                send(exchange, 400, error("Bad number: " + e.getMessage()));
+                return;
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error("Bad query: " + e.getMessage()));
+                return;
+            }
+            byte[] program = readBody(exchange.getRequestBody());
+            if (program == null) {
+                send(exchange, 413, error("Program larger than " + MAX_BODY + " bytes"));
+                return;
+            }
+            String reply;
+            try {
+                reply = run(program, query.getOrDefault("input", ""), budget, timeout);
+            } catch (IOException | IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            } catch (RuntimeException e) {
+                send(exchange, 500, error(e.toString()));
+                return;
+            }
+            send(exchange, 200, reply);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            send(exchange, 200, "{\"jobs\":" + jobs.sum() + ",\"instructions\":" + instructions.sum() + "}");
+        }
+    }
+
+    /**
+     * Run one program on a fresh machine
+     * @return The JSON reply
+     * @throws IOException if the program cannot be loaded
+     */
+    String run(byte[] program, String input, long budget, long timeoutMillis) throws IOException {
+        long t0 = System.nanoTime();
+        HeadlessDevices devices = new HeadlessDevices(input);
+        Machine machine = new Machine(devices);
+        machine.cpu.setCosts(costs);
+        machine.load(program);
+        machine.cpu.setPC(Machine.IPL_START);
+        short[] loaded = machine.memory.toArray();
+        long executed = machine.run(budget, t0 + timeoutMillis * 1_000_000);
+        long nanos = System.nanoTime() - t0;
+        jobs.increment();
+        instructions.add(executed);
+
+        CPU c = machine.cpu;
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"status\":\"").append(BatchRunner.status(machine, executed, budget)).append('"');
+        json.append(",\"instructions\":").append(executed);
+        json.append(",\"cycles\":").append(machine.cpu.cycles());
+        json.append(",\"nanos\":").append(nanos);
+        json.append(",\"registers\":{");
+        json.append("\"PC\":").append(c.PC & 0xFFFF);
+        json.append(",\"IR\":").append(c.IR & 0xFFFF);
+        json.append(",\"MAR\":").append(c.MAR & 0xFFFF);
+        json.append(",\"MBR\":").append(c.MBR & 0xFFFF);
+        json.append(",\"CC\":").append(c.CC);
+        json.append(",\"MFR\":").append(c.MFR);
+        json.append(",\"R\":[").append(c.R[0]).append(',').append(c.R[1]).append(',')
+                .append(c.R[2]).append(',').append(c.R[3]).append(']');
+        json.append(",\"X\":[").append(c.X[1]).append(',').append(c.X[2]).append(',').append(c.X[3]).append("]}");
+        json.append(",\"memory\":[");
+        short[] now = machine.memory.toArray();
+        boolean first = true;
+        for (int a = 0; a < now.length; a++) {
+            if (now[a] == loaded[a]) continue;
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"address\":").append(a).append(",\"before\":").append(loaded[a])
+                    .append(",\"after\":").append(now[a]).append('}');
+        }
+        json.append(']');
+        json.append(",\"output\":");
+        string(json, devices.getOutput());
+        Cache cache = c.cache;
+        json.append(",\"cache\":{\"hits\":").append(cache.hits).append(",\"misses\":").append(cache.misses)
+                .append(",\"evictions\":").append(cache.evictions).append("}}");
+        return json.toString();
+    }
+
+    /**
+     * @return The request body, or null if it is larger than MAX_BODY
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY + 1);
+        return body.length > MAX_BODY ? null : body;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        string(json, String.valueOf(message));
+        return json.append('}').toString();
+    }
+
+    /**
+     * Append s as a JSON string literal
+     */
+    private static void string(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (ch < 0x20) json.append(String.format("\\u%04x", (int) ch));
+                    else json.append(ch);
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        SimulatorService service = new SimulatorService(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        if (args.length > 1) service.costs = CycleModel.load(Path.of(args[1]));
+        service.start();
+        System.out.println("Simulator service listening on http://" + service.address().getHostString() + ":"
+                + service.address().getPort() + "/run");
+    }
+}
@@ -0,0 +1,38 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The run loop must not allocate once warmed up, translated or interpreted
+ */
+class AllocationTest {
+    /** Allowance for JIT and class loading noise, far below one object per thousand instructions **/
+    private static final long MAX_BYTES = 64 * 1024;
+    private static final long INSTRUCTIONS = 20_000_000;
+
+    private static long allocated(boolean translate) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Machine m = Programs.loop();
+        m.translator.enabled = translate;
+        m.run(INSTRUCTIONS);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        m.run(INSTRUCTIONS);
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @Test
+    void translatedRunDoesNotAllocate() {
+        long bytes = allocated(true);
+        assertTrue(bytes < MAX_BYTES, bytes + " bytes allocated");
+    }
+
+    @Test
+    void interpretedRunDoesNotAllocate() {
+        long bytes = allocated(false);
+        assertTrue(bytes < MAX_BYTES, bytes + " bytes allocated");
+    }
+}
@@ -0,0 +1,65 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssemblerTest {
+    /** Counts R0 down from 3; Count and End are used before they are defined **/
+    private static final List<String> COUNTDOWN = List.of(
+            "        LOC 8",
+            "Start:  LDR 0,0,Count   ; R0 = 3",
+            "Loop:   SIR 0,1",
+            "        JNE 0,0,Loop",
+            "End:    HLT",
+            "Count:  Data 3",
+            "Ptr:    Data End");
+
+    @Test
+    void resolvesLabelsInTheSecondPass() {
+        Assembler.Program p = new Assembler().assemble(COUNTDOWN);
+        assertEquals(8, p.labels().get("Start"));
+        assertEquals(9, p.labels().get("Loop"));
+        assertEquals(11, p.labels().get("End"));
+        assertEquals(12, p.labels().get("Count"));
+        assertArrayEquals(new int[] { 8, 9, 10, 11, 12, 13 }, p.addresses());
+        assertEquals(CPU.LDR << 10 | 12, p.words()[0]);
+        assertEquals(CPU.JNE << 10 | 9, p.words()[2]);
+        assertEquals(11, p.words()[5]);
+    }
+
+    @Test
+    void assembledProgramRuns() {
+        Machine m = new Machine();
+        new Assembler().assemble(COUNTDOWN).load(m.memory);
+        m.cpu.setPC((short) 8);
+        assertEquals(8, m.runUntilHalt());
+        assertEquals(0, m.cpu.R[0]);
+        assertTrue(m.isHalted());
+    }
+
+    @Test
+    void reassemblyPicksUpMovedLabels() {
+        Assembler a = new Assembler();
+        a.assemble(COUNTDOWN);
+        List<String> edited = new ArrayList<>(COUNTDOWN);
+        edited.add(1, "        Data 0");
+        Assembler.Program p = a.assemble(edited);
+        assertEquals(13, p.labels().get("Count"));
+        assertEquals(CPU.LDR << 10 | 13, p.words()[1]);
+        assertEquals(12, p.words()[6]);
+    }
+
+    @Test
+    void rejectsBadLabels() {
+        Assembler a = new Assembler();
+        assertThrows(IllegalArgumentException.class, () -> a.assemble(List.of("  JNE 0,0,Nowhere")));
+        assertThrows(IllegalArgumentException.class, () -> a.assemble(List.of("A: HLT", "A: HLT")));
+    }
+}
@@ -0,0 +1,17 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BranchPredictorTest {
+    @Test
+    void conditionalJumpToTheNextWordIsTaken() {
+        Machine m = ProfilerTest.nextWord();
+        BranchPredictor p = new BranchPredictor.Static(m.memory.size, 16, false).attach(m);
+        m.runUntilHalt();
+        assertEquals(4, p.total);
+        assertEquals(1, p.directionMisses);
+        assertEquals(1, p.mispredicted[10]);
+    }
+}
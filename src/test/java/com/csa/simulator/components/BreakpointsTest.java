@@ -0,0 +1,93 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stops on the loop at 0x31-0x35, with and without the translator
+ */
+class BreakpointsTest {
+    private static Machine loop(boolean translate, String spec) {
+        Machine m = Programs.loop();
+        m.translator.enabled = translate;
+        m.run(10_000); // let the translator compile the loop first
+        m.breakpoints.parse(spec);
+        return m;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void stopsBeforeBreakpointAndResumes(boolean translate) {
+        Machine m = loop(translate, "33");
+        m.run(1_000_000);
+        assertTrue(m.isStopped());
+        assertEquals(Breakpoints.Kind.EXECUTE, m.breakpoints.stop);
+        assertEquals(0x33, m.cpu.PC);
+        short r0 = m.cpu.R[0];
+        // Resuming executes the breakpoint, then stops there again one iteration later
+        assertEquals(5, m.run(1_000_000));
+        assertEquals(0x33, m.cpu.PC);
+        assertEquals(r0 + 1, m.cpu.R[0]);
+        m.breakpoints.clearAll();
+        assertEquals(1000, m.run(1000));
+        assertFalse(m.isStopped());
+        assertNull(m.breakpoints.stop);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void clearedStopResumesABatchedRun(boolean translate) {
+        // The GUI's Run: batches while not halted or stopped, clearing the stop first
+        Machine m = loop(translate, "33");
+        for (int i = 0; i < 3; i++) {
+            m.breakpoints.clearStop();
+            assertFalse(m.isStopped());
+            short r0 = m.cpu.R[0];
+            long executed = 0;
+            while (!m.isHalted() && !m.isStopped()) executed += m.run(1000);
+            assertTrue(executed > 0, "run " + i + " did not move");
+            assertEquals(0x33, m.cpu.PC);
+            if (i > 0) assertEquals(r0 + 1, m.cpu.R[0]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void conditionHoldsAtStop(boolean translate) {
+        Machine m = loop(translate, "33:R0=2710");
+        m.run(1_000_000);
+        assertTrue(m.isStopped());
+        assertEquals(0x2710, m.cpu.R[0]);
+        assertEquals(0x33, m.cpu.PC);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void writeWatchpointStopsAfterTheStore(boolean translate) {
+        Machine m = loop(translate, "w15");
+        m.run(1_000_000);
+        assertEquals(Breakpoints.Kind.WRITE, m.breakpoints.stop);
+        assertEquals(0x15, m.breakpoints.stopAddress);
+        assertEquals(0x33, m.breakpoints.stopPc);
+        assertEquals(0x34, m.cpu.PC);
+        assertEquals(m.cpu.R[0], m.memory.read(0x15));
+        assertEquals(5, m.run(1_000_000));
+        assertEquals(0x34, m.cpu.PC);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void readWatchpointIgnoresInstructionFetches(boolean translate) {
+        Machine m = loop(translate, "r14 r31-35");
+        m.run(1_000_000);
+        assertEquals(Breakpoints.Kind.READ, m.breakpoints.stop);
+        assertEquals(0x14, m.breakpoints.stopAddress);
+        assertEquals(0x32, m.breakpoints.stopPc);
+        assertEquals(0x33, m.cpu.PC);
+    }
+}
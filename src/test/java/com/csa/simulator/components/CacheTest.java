@@ -0,0 +1,53 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheTest {
+    /**
+     * Fill a 4-way set with blocks 0-3, touch 0 again, then bring in 4
+     * @return Blocks left in the cache
+     */
+    private static Set<Integer> afterEviction(Cache.Policy policy) {
+        Cache c = new Cache(1, 4, 1, policy);
+        for (int a : new int[] { 0, 1, 2, 3 }) assertFalse(c.read(a, (short) a));
+        assertTrue(c.read(0, (short) 0));
+        assertFalse(c.read(4, (short) 4));
+        assertEquals(1, c.evictions);
+        Set<Integer> blocks = new TreeSet<>();
+        for (int i = 0; i < c.lineCount(); i++) if (c.isValid(i)) blocks.add(c.blocks[i]);
+        return blocks;
+    }
+
+    @Test
+    void fifoEvictsOldestFill() {
+        assertEquals(Set.of(1, 2, 3, 4), afterEviction(Cache.Policy.FIFO));
+    }
+
+    @Test
+    void lruEvictsLeastRecentlyUsed() {
+        assertEquals(Set.of(0, 2, 3, 4), afterEviction(Cache.Policy.LRU));
+    }
+
+    @Test
+    void plruFollowsTreeBits() {
+        // 0 was touched last on the left, so the tree points right, at 2 (3 is more recent)
+        assertEquals(Set.of(0, 1, 3, 4), afterEviction(Cache.Policy.PLRU));
+    }
+
+    @Test
+    void linesHoldWholeBlocks() {
+        Cache c = new Cache(2, 2, 4, Cache.Policy.LRU);
+        assertFalse(c.read(0x10, (short) 1));
+        assertTrue(c.read(0x13, (short) 1));
+        assertFalse(c.write(0x14, (short) 1));
+        assertEquals(1, c.hits);
+        assertEquals(2, c.misses);
+    }
+}
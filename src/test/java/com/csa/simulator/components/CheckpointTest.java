@@ -0,0 +1,95 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+    private static byte[] bytes(Checkpoint c) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        c.write(Channels.newChannel(out));
+        assertEquals(c.byteSize(), out.size());
+        return out.toByteArray();
+    }
+
+    private static Checkpoint read(byte[] b) throws IOException {
+        return Checkpoint.read(Channels.newChannel(new ByteArrayInputStream(b)));
+    }
+
+    @Test
+    void roundTripResumesIdentically() throws IOException {
+        Machine m = Programs.loop();
+        m.cpu.cache = new Cache(4, 4, 4, Cache.Policy.LRU);
+        m.run(150);
+        byte[] saved = bytes(Checkpoint.capture(m));
+        String at = Programs.state(m);
+        m.run(350);
+        String after = Programs.state(m);
+
+        Machine copy = new Machine();
+        read(saved).restore(copy);
+        assertEquals(at, Programs.state(copy));
+        copy.run(350);
+        assertEquals(after, Programs.state(copy));
+    }
+
+    @Test
+    void restoreInPlaceRewinds() throws IOException {
+        Machine m = Programs.loop();
+        m.run(1000);
+        Checkpoint c = read(bytes(Checkpoint.capture(m)));
+        String at = Programs.state(m);
+        m.run(1000);
+        c.restore(m);
+        assertEquals(at, Programs.state(m));
+    }
+
+    @Test
+    void restoreRepaintsAndClearsHalt() throws IOException {
+        Machine m = Programs.ipl(Programs.LOADING);
+        Checkpoint c = Checkpoint.capture(m);
+        m.runUntilHalt();
+        m.cpu.takeDirty();
+        c.restore(m);
+        assertFalse(m.isHalted());
+        assertEquals(CPU.DIRTY_ALL, m.cpu.takeDirty());
+    }
+
+    @Test
+    void rejectsSizesBeforeAllocating() throws IOException {
+        byte[] b = bytes(Checkpoint.capture(Programs.loop()));
+        // length at 0, memory size at 10, address bits at 14, cache sets, ways and line size at 53, 57 and 61
+        assertBad(b, x -> x.putInt(0, Integer.MAX_VALUE));
+        assertBad(b, x -> x.putInt(10, Integer.MAX_VALUE));
+        assertBad(b, x -> x.put(14, (byte) 31));
+        assertBad(b, x -> x.putInt(53, 1 << 30));
+        assertBad(b, x -> x.putInt(57, 1 << 30));
+        assertBad(b, x -> x.putInt(61, -4));
+    }
+
+    private static void assertBad(byte[] good, Consumer<ByteBuffer> corrupt) {
+        byte[] b = good.clone();
+        corrupt.accept(ByteBuffer.wrap(b));
+        assertThrows(IOException.class, () -> read(b));
+    }
+
+    @Test
+    void rejectsCorruptInput() throws IOException {
+        byte[] b = bytes(Checkpoint.capture(Programs.loop()));
+        byte[] magic = b.clone();
+        magic[4] ^= 1;
+        assertThrows(IOException.class, () -> read(magic));
+        assertThrows(IOException.class, () -> read(Arrays.copyOf(b, b.length - 1)));
+        assertThrows(IOException.class, () -> read(new byte[] { 0, 0, 0, 2, 0, 0 }));
+    }
+}
@@ -0,0 +1,70 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The journal restores registers, memory and the clock; cache statistics are not compared
+ */
+class JournalTest {
+    private static Machine loop(long instructions) {
+        Machine m = Programs.loop();
+        m.run(instructions);
+        return m;
+    }
+
+    @Test
+    void stepBackRestoresEveryEarlierState() {
+        Machine m = Programs.loop();
+        Journal journal = Journal.attach(m, 1 << 16, 1000);
+        List<String> states = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            states.add(Programs.registers(m));
+            m.step();
+        }
+        for (int i = states.size() - 1; i >= 0; i--) {
+            assertTrue(journal.stepBack());
+            assertEquals(states.get(i), Programs.registers(m), "after undoing instruction " + i);
+        }
+        assertFalse(journal.stepBack());
+    }
+
+    @Test
+    void rewindMatchesAShorterRun() {
+        // The small budget drops records, so long rewinds replay from keyframes, and the
+        // keyframes it keeps reach back only a few thousand instructions
+        for (int budget : new int[] { 1 << 22, 1 << 13 })
+            for (long back : new long[] { 1, 7, 300, 4000, 49_999 }) {
+                Machine m = Programs.loop();
+                Journal journal = Journal.attach(m, budget, 1000);
+                m.run(50_000);
+                long reach = journal.position() - journal.oldest();
+                long went = journal.rewind(back);
+                assertEquals(Math.min(back, reach), went, "budget " + budget);
+                assertEquals(Programs.registers(loop(50_000 - went)), Programs.registers(m),
+                        "budget " + budget + " back " + back);
+            }
+        Machine m = Programs.loop();
+        Journal journal = Journal.attach(m, 1 << 22, 1000);
+        m.run(50_000);
+        assertEquals(49_999, journal.rewind(49_999));
+    }
+
+    @Test
+    void runBackStopsAtAddress() {
+        Machine m = Programs.loop();
+        Journal journal = Journal.attach(m, 1 << 16, 1000);
+        m.run(3000);
+        String there = Programs.registers(m);
+        int pc = m.cpu.PC & 0xFFFF;
+        m.run(4);
+        assertEquals(4, journal.runBack(a -> a == pc));
+        assertEquals(there, Programs.registers(m));
+    }
+}
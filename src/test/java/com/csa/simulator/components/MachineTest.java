@@ -0,0 +1,44 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MachineTest {
+    @Test
+    void loadClearsHalt() throws IOException {
+        Machine m = Programs.ipl(Programs.LOADING);
+        m.runUntilHalt();
+        assertTrue(m.isHalted());
+        m.ipl(new File(Programs.PROGRAM1));
+        assertFalse(m.isHalted());
+        assertTrue(m.run(1000) > 1);
+        assertTrue(m.isHalted());
+    }
+
+    @Test
+    void indirectAddressOutsideMemoryFaults() throws IOException {
+        Machine m = new Machine();
+        m.load(Programs.BAD_POINTER.getBytes(StandardCharsets.US_ASCII));
+        m.cpu.setPC((short) 0x30);
+        assertTrue(m.step());
+        assertEquals(CPU.MF_ILLEGAL_ADDRESS, m.memory.read(1));
+        assertEquals(11, m.cpu.PC);
+    }
+
+    @Test
+    void clearHaltKeepsThePc() throws IOException {
+        Machine m = Programs.ipl(Programs.LOADING);
+        m.runUntilHalt();
+        short pc = m.cpu.PC;
+        m.clearHalt();
+        assertFalse(m.isHalted());
+        assertEquals(pc, m.cpu.PC);
+    }
+}
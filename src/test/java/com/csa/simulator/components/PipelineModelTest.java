@@ -0,0 +1,16 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineModelTest {
+    @Test
+    void jumpsToTheNextWordFlush() {
+        Machine m = ProfilerTest.nextWord();
+        PipelineModel p = PipelineModel.attach(m, true);
+        m.runUntilHalt();
+        assertEquals(4, p.takenJumps);
+        assertEquals(4 * PipelineModel.FLUSH_PENALTY, p.flushCycles);
+    }
+}
@@ -0,0 +1,46 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProfilerTest {
+    /** Calls and jumps whose targets are the next word **/
+    static final List<String> NEXT_WORD = List.of(
+            "        LOC 8",
+            "Main:   JSR 0,Sub     ; calls the next word",
+            "Sub:    JSR 0,Leaf",
+            "        JZ 0,0,Next   ; R0 = 0 from RFS, taken to the next word",
+            "Next:   HLT",
+            "Leaf:   RFS 0");
+
+    static Machine nextWord() {
+        Machine m = new Machine();
+        new Assembler().assemble(NEXT_WORD).load(m.memory);
+        m.cpu.setPC((short) 8);
+        return m;
+    }
+
+    @Test
+    void jumpsToTheNextWordAreTaken() {
+        Machine m = nextWord();
+        Profiler p = Profiler.attach(m);
+        assertEquals(5, m.runUntilHalt());
+        for (int a : new int[] { 8, 9, 10, 12 })
+            assertEquals(1, p.taken[a], "jump at " + a);
+    }
+
+    @Test
+    void callToTheNextWordIsAFrame() throws IOException {
+        Machine m = nextWord();
+        Profiler p = Profiler.attach(m);
+        m.runUntilHalt();
+        StringBuilder out = new StringBuilder();
+        p.writeCollapsed(out);
+        assertEquals(List.of("0x0008 1", "0x0008;0x0009 3", "0x0008;0x0009;0x000c 1"),
+                out.toString().lines().sorted().toList());
+    }
+}
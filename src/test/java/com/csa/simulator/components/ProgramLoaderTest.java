@@ -0,0 +1,104 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProgramLoaderTest {
+    private static byte[] image(Memory memory) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramLoader.writeImage(memory, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static Memory sample() {
+        Memory m = new Memory();
+        m.write(0x20, (short) 7);
+        m.write(0x21, (short) 0xBEEF);
+        m.write(0x700, (short) 9);
+        return m;
+    }
+
+    @Test
+    void loadsHexPairs() throws IOException {
+        Memory m = new Memory();
+        int words = ProgramLoader.load("0030 0401\n0031 FFFF\n\n0040 12\n".getBytes(StandardCharsets.US_ASCII), m);
+        assertEquals(3, words);
+        assertEquals(0x0401, m.read(0x30));
+        assertEquals((short) 0xFFFF, m.read(0x31));
+        assertEquals(0x12, m.read(0x40));
+    }
+
+    @Test
+    void rejectsBadHex() {
+        assertThrows(IOException.class, () -> ProgramLoader.load("0030\n".getBytes(StandardCharsets.US_ASCII), new Memory()));
+        assertThrows(IOException.class, () -> ProgramLoader.load("FFFF 1\n".getBytes(StandardCharsets.US_ASCII), new Memory()));
+        Memory m = new Memory();
+        byte[] past = String.format("%04X 1%n", m.size).getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> ProgramLoader.load(past, m));
+    }
+
+    @Test
+    void imageRoundTrip() throws IOException {
+        Memory m = sample();
+        Memory copy = new Memory();
+        ProgramLoader.load(image(m), copy);
+        assertArrayEquals(m.toArray(), copy.toArray());
+    }
+
+    @Test
+    void writingAnImageFiresNoWatchpoint() throws IOException {
+        Machine m = new Machine();
+        m.memory.write(0x20, (short) 7);
+        m.breakpoints.set(Breakpoints.Kind.READ, 0x20);
+        image(m.memory);
+        assertEquals(0, m.breakpoints.hits);
+    }
+
+    @Test
+    void imageFileMatchesIplFile() throws IOException {
+        Memory ipl = new Memory();
+        ProgramLoader.load(Path.of(Programs.PROGRAM1), ipl);
+        Path file = Files.createTempFile("program", ".img");
+        try {
+            ProgramLoader.writeImage(ipl, file);
+            Memory loaded = new Memory();
+            ProgramLoader.load(file, loaded);
+            assertArrayEquals(ipl.toArray(), loaded.toArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void rejectsBadHeaders() throws IOException {
+        byte[] good = image(sample());
+        // magic at 0, version at 4, extent at 6, segment count at 10, first segment at 14
+        assertBad(good, b -> b.putShort(4, (short) 99));
+        assertBad(good, b -> b.putInt(6, -1));
+        assertBad(good, b -> b.putInt(6, 1 << 20));
+        assertBad(good, b -> b.putInt(10, -3));
+        assertBad(good, b -> b.putInt(10, 1000));
+        assertBad(good, b -> b.putInt(14, -1));
+        assertBad(good, b -> b.putInt(18, -1));
+        assertBad(good, b -> b.putInt(18, 0x7FFFFFFF));
+        assertBad(good, b -> b.putInt(14, ByteBuffer.wrap(good).getInt(6)));
+    }
+
+    private static void assertBad(byte[] good, Consumer<ByteBuffer> corrupt) {
+        byte[] b = good.clone();
+        corrupt.accept(ByteBuffer.wrap(b));
+        assertThrows(IOException.class, () -> ProgramLoader.load(b, new Memory()));
+    }
+}
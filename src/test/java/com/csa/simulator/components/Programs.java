@@ -0,0 +1,73 @@
+package com.csa.simulator.components;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Programs Class - Machines set up with the programs the tests share, and a summary of
+ * machine state to compare two machines by.
+ */
+final class Programs {
+    static final String PROGRAM1 = "public/Program1.txt";
+    static final String LOADING = "public/loading.txt";
+    /**
+     * LDR 0,0,20,I at 0x30 through a pointer outside memory, and at 11, where the fault
+     * handler continues, a jump back to it
+     */
+    static final String BAD_POINTER = "0014 0900\n0015 0030\n0030 0434\n000B 2C35\n";
+    /** Characters the console programs read **/
+    static final String INPUT = "hello 12 34 5 6 7 8 9 10 11 12 13 14 15 16 17 18 19 20 21 22 23 24 25";
+
+    private Programs() {
+    }
+
+    private static short mem(int op, int r, int ix, int i, int address) {
+        return (short) (op << 10 | r << 8 | ix << 6 | i << 5 | address);
+    }
+
+    /**
+     * Endless loop at 0x31-0x35 that counts in R0, stores it to 21 and adds word 20 to a
+     * shifted R1; 0x30 points X1 at the loop
+     */
+    static Machine loop() {
+        Machine m = new Machine();
+        m.memory.write(20, (short) 3);
+        m.memory.write(22, (short) 0x30);
+        m.memory.write(0x30, mem(CPU.LDX, 0, 1, 0, 22));
+        m.memory.write(0x31, mem(CPU.AIR, 0, 0, 0, 1));
+        m.memory.write(0x32, mem(CPU.AMR, 1, 0, 0, 20));
+        m.memory.write(0x33, mem(CPU.STR, 0, 0, 0, 21));
+        m.memory.write(0x34, (short) (CPU.SRC << 10 | 1 << 8 | 1 << 7 | 1 << 6 | 1)); // SRC R1,1,L,L
+        m.memory.write(0x35, mem(CPU.JMA, 0, 1, 0, 1));
+        m.cpu.setPC((short) 0x30);
+        return m;
+    }
+
+    /**
+     * Machine with an IPL file loaded and the console keyboard holding INPUT
+     */
+    static Machine ipl(String file) throws IOException {
+        Machine m = new Machine(new HeadlessDevices(INPUT));
+        m.ipl(new File(file));
+        return m;
+    }
+
+    /**
+     * @return Registers, clock and memory contents of a machine
+     */
+    static String registers(Machine m) {
+        CPU c = m.cpu;
+        return String.format("PC %04X IR %04X MAR %04X MBR %04X CC %d MFR %d R %s X %s FR %d %d cycles %d memory %d",
+                c.PC, c.IR, c.MAR, c.MBR, c.CC, c.MFR, Arrays.toString(c.R), Arrays.toString(c.X), c.FR.FR0, c.FR.FR1,
+                c.cycles(), Arrays.hashCode(m.memory.toArray()));
+    }
+
+    /**
+     * @return Registers, clock, memory and cache statistics of a machine
+     */
+    static String state(Machine m) {
+        Cache c = m.cpu.cache;
+        return registers(m) + " cache " + c.hits + "/" + c.misses + "/" + c.evictions;
+    }
+}
@@ -0,0 +1,80 @@
+package com.csa.simulator.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslatorTest {
+    /**
+     * Run two copies of a machine in random slices, one with the translator and one without,
+     * and compare registers, clock, cache and memory after every slice
+     * @return The translated machine
+     */
+    static Machine compare(Machine translated, Machine interpreted, long instructions) {
+        interpreted.translator.enabled = false;
+        Random random = new Random(instructions);
+        long done = 0;
+        do {
+            long slice = 1 + random.nextInt(500);
+            long a = translated.run(slice), b = interpreted.run(slice);
+            assertEquals(b, a, "instructions after " + done);
+            assertEquals(Programs.state(interpreted), Programs.state(translated), "state after " + done);
+            done += a;
+        } while (done < instructions && !interpreted.isHalted());
+        return translated;
+    }
+
+    /**
+     * Run a short program to its HLT over and over, restarting both machines at the IPL
+     * address with memory as the last run left it, until its code is hot enough to translate
+     */
+    static Machine compareReruns(String program) throws IOException {
+        Machine translated = Programs.ipl(program), interpreted = Programs.ipl(program);
+        for (int i = 0; i < 2 * BlockTranslator.HOT_THRESHOLD; i++) {
+            compare(translated, interpreted, Long.MAX_VALUE);
+            assertTrue(translated.isHalted(), "run " + i + " did not halt");
+            translated.cpu.setPC(Machine.IPL_START);
+            interpreted.cpu.setPC(Machine.IPL_START);
+        }
+        assertTrue(translated.translator.compiled > 0, "nothing was translated");
+        return translated;
+    }
+
+    @Test
+    void loopMatchesInterpreter() {
+        Machine m = compare(Programs.loop(), Programs.loop(), 300_000);
+        assertTrue(m.translator.compiled > 0, "nothing was translated");
+    }
+
+    @Test
+    void longLoopMatchesInterpreter() {
+        Machine m = compare(Programs.loop(), Programs.loop(), 3_000_000);
+        assertEquals(m.cpu.R[0], m.memory.read(21));
+    }
+
+    @Test
+    void addressFaultMatchesInterpreter() throws IOException {
+        Machine translated = new Machine(), interpreted = new Machine();
+        for (Machine m : new Machine[] { translated, interpreted }) {
+            m.load(Programs.BAD_POINTER.getBytes(StandardCharsets.US_ASCII));
+            m.cpu.setPC((short) 0x30);
+        }
+        compare(translated, interpreted, 20_000);
+        assertTrue(translated.translator.compiled > 0, "nothing was translated");
+    }
+
+    @Test
+    void program1MatchesInterpreter() throws IOException {
+        compareReruns(Programs.PROGRAM1);
+    }
+
+    @Test
+    void loadingMatchesInterpreter() throws IOException {
+        compareReruns(Programs.LOADING);
+    }
+}